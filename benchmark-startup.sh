@@ -0,0 +1,29 @@
+#!/usr/bin/env bash
+# Benchmark de inicialização: executa a aplicação N vezes e reporta o tempo até a primeira consulta.
+# Uso:
+#   mvn -Pstartup package            (gera target/startup com o jar extraído, AOT e o arquivo CDS)
+#   ./benchmark-startup.sh [N]       (padrão: 10 execuções, banco PostgreSQL em localhost:5432)
+# Para comparar com o build padrão: MODO=padrao ./benchmark-startup.sh (sem AOT e sem CDS)
+set -euo pipefail
+
+EXECUCOES="${1:-10}"
+MODO="${MODO:-startup}"
+DIR="target/startup"
+JAR="$(ls "$DIR"/*.jar | head -n 1)"
+
+if [ "$MODO" = "startup" ]; then
+  OPCOES="-XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true"
+else
+  OPCOES=""
+fi
+
+total=0
+for i in $(seq 1 "$EXECUCOES"); do
+  linha=$(cd "$DIR" && java $OPCOES -Dspring.profiles.active=startup -Dlibraryapi.startup.benchmark.exit=true \
+    -jar "$(basename "$JAR")" | grep "startup-benchmark")
+  ms=$(echo "$linha" | sed -E 's/.*first-query=([0-9]+)ms.*/\1/')
+  echo "execucao $i: ${ms}ms"
+  total=$((total + ms))
+done
+
+echo "media ($MODO): $((total / EXECUCOES))ms"
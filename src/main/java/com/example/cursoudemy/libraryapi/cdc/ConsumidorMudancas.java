@@ -0,0 +1,153 @@
+package com.example.cursoudemy.libraryapi.cdc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Leitor do LogMudancas com offset retomável: a última sequência confirmada fica em "<nome>.offset" no diretório
+ * do log, e um consumidor aberto com o mesmo nome (inclusive após reiniciar a aplicação) continua dali.
+ * Entrega no mínimo uma vez: o que foi lido e não confirmado é entregue de novo na próxima abertura.
+ * Se os segmentos após o offset já tiverem sido descartados, a abertura falha (IllegalStateException) em vez de
+ * pular registros; um consumidor novo (sem arquivo de offset) começa pelo segmento mais antigo que restou.
+ * Cada consumidor deve ser lido por uma única thread.
+ */
+public class ConsumidorMudancas {
+
+    static final String SUFIXO_OFFSET = ".offset";
+
+    private final LogMudancas log;
+    private final String nome;
+    private final Path arquivoOffset;
+
+    private volatile long confirmada; // Última sequência confirmada (gravada no arquivo de offset)
+    private volatile long lida; // Última sequência entregue ao consumidor (lida também pelas métricas, em outra thread)
+    private MappedByteBuffer segmento; // Mapeamento somente leitura do segmento sendo lido
+    private int posicao;
+
+    ConsumidorMudancas(LogMudancas log, String nome) {
+        this.log = log;
+        this.nome = nome;
+        this.arquivoOffset = log.diretorio().resolve(nome + SUFIXO_OFFSET);
+        // Consumidor novo não tem o que retomar: começa pelo registro mais antigo que ainda existe no log
+        confirmada = Files.exists(arquivoOffset) ? lerOffset(arquivoOffset) : primeiraSequenciaDisponivel() - 1;
+        lida = confirmada;
+        posicionar(confirmada + 1);
+    }
+
+    static long lerOffset(Path arquivo) {
+        try {
+            return Long.parseLong(Files.readString(arquivo, StandardCharsets.UTF_8).trim());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Entrega ao consumidor até "maximo" registros ainda não lidos, em ordem de sequência.
+     * Retorna quantos foram entregues (0 quando o consumidor está em dia com o log).
+     * As fatias em RegistroMudanca.conteudo() apontam direto para o arquivo mapeado, sem cópia.
+     */
+    public int ler(int maximo, Consumer<RegistroMudanca> acao) {
+        long publicada = log.ultimaSequencia(); // Leitura volátil: tudo até aqui já está visível no segmento
+        int entregues = 0;
+        while (entregues < maximo && lida < publicada) {
+            if (posicao + LogMudancas.CABECALHO > segmento.capacity() || segmento.getInt(posicao) == 0) {
+                posicionar(lida + 1); // Fim dos dados deste segmento: o próximo começa na sequência seguinte
+                continue;
+            }
+            int tamanho = segmento.getInt(posicao);
+            long sequencia = segmento.getLong(posicao + 4);
+            long instante = segmento.getLong(posicao + 12);
+            long origem = segmento.getLong(posicao + 20);
+            ByteBuffer conteudo = segmento.slice(posicao + LogMudancas.CABECALHO, tamanho - LogMudancas.CABECALHO)
+                    .asReadOnlyBuffer();
+            posicao += tamanho;
+            lida = sequencia;
+            entregues++;
+            acao.accept(new RegistroMudanca(sequencia, instante, origem, conteudo));
+        }
+        return entregues;
+    }
+
+    /**
+     * Grava como offset a última sequência lida. Gravação atômica (arquivo temporário + move).
+     */
+    public void confirmar() {
+        if (lida == confirmada) {
+            return;
+        }
+        try {
+            Path temporario = arquivoOffset.resolveSibling(nome + SUFIXO_OFFSET + ".tmp");
+            Files.writeString(temporario, Long.toString(lida), StandardCharsets.UTF_8);
+            Files.move(temporario, arquivoOffset, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            confirmada = lida;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Atraso do consumidor: quantos registros já gravados no log ele ainda não leu.
+     */
+    public long atraso() {
+        return log.ultimaSequencia() - lida;
+    }
+
+    public long confirmada() {
+        return confirmada;
+    }
+
+    public String nome() {
+        return nome;
+    }
+
+    private long primeiraSequenciaDisponivel() {
+        try {
+            return log.inicioDosSegmentos().get(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Mapeia o segmento que contém a sequência e avança até ela.
+     */
+    private void posicionar(long sequencia) {
+        try {
+            List<Long> inicios = log.inicioDosSegmentos();
+            long inicio = inicios.get(0);
+            if (sequencia < inicio) {
+                // Registros entre o offset e o segmento mais antigo foram descartados: pular seria perder alterações
+                throw new IllegalStateException("Consumidor " + nome + " precisa da sequência " + sequencia
+                        + ", mas o log começa em " + inicio + " (segmentos já descartados)");
+            }
+            for (long candidato : inicios) {
+                if (candidato <= sequencia) {
+                    inicio = candidato;
+                }
+            }
+            try (FileChannel canal = FileChannel.open(log.arquivo(inicio))) {
+                segmento = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            }
+            posicao = 0;
+            while (posicao + LogMudancas.CABECALHO <= segmento.capacity()) {
+                int tamanho = segmento.getInt(posicao);
+                if (tamanho == 0 || segmento.getLong(posicao + 4) >= sequencia) {
+                    break;
+                }
+                posicao += tamanho;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.cursoudemy.libraryapi.cdc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Feed de alterações do catálogo (change data capture) para os sistemas de busca e de preços, que antes faziam
+ * varreduras completas em livro para descobrir o que mudou.
+ * - Os entity listeners (CatalogoMudancasListener) e as operações em massa chamam registrar(), que grava a
+ *   alteração na tabela mudanca_catalogo_outbox dentro da própria transação: vai junto no commit, some no rollback.
+ * - Uma única thread (transferirPendentes) move o outbox para o LogMudancas em ordem de id. Só uma instância da
+ *   aplicação pode drenar (libraryapi.cdc.drenar=true): cada instância tem o seu diretório de log, e com várias
+ *   drenando cada log ficaria com uma fatia arbitrária das alterações. Um advisory lock no PostgreSQL garante que,
+ *   mesmo com a propriedade ligada por engano em mais de uma, duas transferências nunca rodam ao mesmo tempo.
+ * - Consumidores leem o log pelo consumidor(nome), com offset retomável, sem nenhum broker externo.
+ * Ordem: o id do outbox é gerado depois que o comando em livro já travou a linha. Duas transações na mesma linha
+ * recebem ids na ordem em que fizeram commit, e a segunda só obtém o seu depois do commit da primeira.
+ * Transações em linhas diferentes podem aparecer no log em qualquer ordem entre si.
+ * Entrega no mínimo uma vez: uma queda entre gravar no log e o commit da transferência repete o lote; cada registro
+ * leva o id do outbox (RegistroMudanca.origem) para o consumidor descartar as repetições.
+ * Vazão e atraso dos consumidores podem ser consultados pela operação JMX "dump" (libraryapi:name=feedMudancas).
+ */
+@ManagedResource(objectName = "libraryapi:name=feedMudancas")
+public class FeedMudancas {
+
+    private static final String REGISTRAR = "insert into mudanca_catalogo_outbox (entidade, operacao, chave) values (?, ?, ?)";
+
+    // Chave do advisory lock da transferência (liberado no fim da transação): uma instância drena por vez
+    private static final String TRAVAR_TRANSFERENCIA = "select pg_try_advisory_xact_lock(hashtext('mudanca_catalogo_outbox'))";
+
+    // Lote mais antigo do outbox. Só enxerga linhas de transações já confirmadas
+    private static final String TRANSFERIR = """
+            delete from mudanca_catalogo_outbox
+            where id in (select id from mudanca_catalogo_outbox order by id limit ?)
+            returning id, entidade, operacao, chave
+            """;
+
+    /**
+     * Métricas do feed. registrosPorSegundo é a média desde a abertura do log; pendentes = ainda no outbox;
+     * atrasos = registros não lidos por consumidor.
+     */
+    public record Metricas(long ultimaSequencia, long registros, long bytes, double registrosPorSegundo,
+                           long pendentes, Map<String, Long> atrasos) {
+    }
+
+    private record Pendente(long id, MudancaCatalogo mudanca) {
+    }
+
+    private final LogMudancas logMudancas;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacaoPropria; // REQUIRES_NEW: nunca participa da transação de quem chama
+    private final int tamanhoLote;
+    private final boolean drenar; // Só a instância que mantém o log lido pelos consumidores
+    private final long inicioNanos = System.nanoTime();
+    private final Map<String, ConsumidorMudancas> consumidores = new ConcurrentHashMap<>();
+
+    public FeedMudancas(LogMudancas logMudancas, JdbcTemplate jdbcTemplate, TransactionTemplate transacaoPropria,
+                        int tamanhoLote, boolean drenar) {
+        this.logMudancas = logMudancas;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacaoPropria = transacaoPropria;
+        this.tamanhoLote = tamanhoLote;
+        this.drenar = drenar;
+    }
+
+    /**
+     * Registra uma alteração no outbox, na transação corrente (sem transação, é gravada na hora).
+     * Chamar depois do comando que alterou a linha, para que o id saia com a linha já travada.
+     */
+    public void registrar(String entidade, MudancaCatalogo.Operacao operacao, Object chave) {
+        jdbcTemplate.update(REGISTRAR, entidade, operacao.name(), String.valueOf(chave));
+    }
+
+    /**
+     * Registra a mesma operação para várias chaves (ex.: preços gravados em lote), em um único batch.
+     */
+    public void registrar(String entidade, MudancaCatalogo.Operacao operacao, Collection<?> chaves) {
+        jdbcTemplate.batchUpdate(REGISTRAR, chaves.stream()
+                .map(chave -> new Object[]{entidade, operacao.name(), String.valueOf(chave)})
+                .toList());
+    }
+
+    /**
+     * Move as alterações confirmadas do outbox para o log, em ordem de id. Retorna quantas foram transferidas.
+     * O lote só sai do outbox se a gravação no log der certo (a gravação acontece antes do commit).
+     * Não faz nada com libraryapi.cdc.drenar=false ou enquanto outra instância estiver transferindo.
+     */
+    @Scheduled(initialDelayString = "${libraryapi.cdc.intervalo-ms:100}", fixedDelayString = "${libraryapi.cdc.intervalo-ms:100}")
+    public synchronized int transferirPendentes() {
+        if (!drenar) {
+            return 0;
+        }
+        int total = 0;
+        Integer transferidos;
+        do {
+            transferidos = transacaoPropria.execute(status -> {
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRAVAR_TRANSFERENCIA, Boolean.class))) {
+                    return null; // Outra instância está drenando
+                }
+                List<Pendente> lote = jdbcTemplate.query(TRANSFERIR, (rs, i) -> new Pendente(rs.getLong("id"),
+                                new MudancaCatalogo(rs.getString("entidade"), MudancaCatalogo.Operacao.valueOf(rs.getString("operacao")),
+                                        rs.getString("chave"))), tamanhoLote)
+                        .stream()
+                        .sorted((a, b) -> Long.compare(a.id(), b.id())) // returning não garante ordem
+                        .toList();
+                if (!lote.isEmpty()) {
+                    // O id do outbox vai junto (origem): se o commit abaixo falhar, o lote repetido é reconhecível
+                    logMudancas.acrescentar(lote.stream().map(Pendente::mudanca).toList(),
+                            lote.stream().mapToLong(Pendente::id).toArray());
+                }
+                return lote.size();
+            });
+            total += transferidos == null ? 0 : transferidos;
+        } while (transferidos != null && transferidos == tamanhoLote);
+        return total;
+    }
+
+    /**
+     * Consumidor com o nome informado; a mesma instância é devolvida para o mesmo nome (e entra nas métricas de atraso).
+     */
+    public ConsumidorMudancas consumidor(String nome) {
+        return consumidores.computeIfAbsent(nome, logMudancas::consumidor);
+    }
+
+    @ManagedAttribute
+    public long getUltimaSequencia() {
+        return logMudancas.ultimaSequencia();
+    }
+
+    /**
+     * Apaga os segmentos já confirmados por todos os consumidores: vale o menor offset gravado em disco, inclusive
+     * de consumidores que ainda não se reconectaram desde o último reinício.
+     */
+    @ManagedOperation
+    public void descartarConsumidos() {
+        logMudancas.menorOffsetConfirmado().ifPresent(logMudancas::descartarAte);
+    }
+
+    public Metricas metricas() {
+        double segundos = (System.nanoTime() - inicioNanos) / 1_000_000_000.0;
+        Map<String, Long> atrasos = new TreeMap<>();
+        consumidores.forEach((nome, consumidor) -> atrasos.put(nome, consumidor.atraso()));
+        Long pendentes = jdbcTemplate.queryForObject("select count(*) from mudanca_catalogo_outbox", Long.class);
+        return new Metricas(logMudancas.ultimaSequencia(), logMudancas.registros(), logMudancas.bytes(),
+                logMudancas.registros() / segundos, pendentes == null ? 0 : pendentes, atrasos);
+    }
+
+    /**
+     * Vazão do feed e atraso de cada consumidor.
+     */
+    @ManagedOperation
+    public String dump() {
+        Metricas metricas = metricas();
+        StringBuilder texto = new StringBuilder(String.format(Locale.ROOT,
+                "sequencia=%d registros=%d bytes=%d registros/s=%.1f pendentes no outbox=%d%n", metricas.ultimaSequencia(),
+                metricas.registros(), metricas.bytes(), metricas.registrosPorSegundo(), metricas.pendentes()));
+        metricas.atrasos().forEach((nome, atraso) -> texto.append("consumidor ").append(nome)
+                .append(" atraso=").append(atraso).append('\n'));
+        return texto.toString();
+    }
+}
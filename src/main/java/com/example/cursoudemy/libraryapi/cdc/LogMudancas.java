@@ -0,0 +1,213 @@
+package com.example.cursoudemy.libraryapi.cdc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Log local append-only das alterações do catálogo, em segmentos de tamanho fixo mapeados em memória.
+ * Cada segmento (mudancas-<primeira sequência>.log) contém registros no formato:
+ *   int tamanho (cabeçalho + conteúdo) | long sequência | long instante (epoch ms) | long origem | conteúdo UTF-8
+ * A origem é o id da alteração no outbox (mudanca_catalogo_outbox), 0 quando não veio dele. Ela identifica a
+ * alteração de forma estável: se uma transferência for repetida, os registros repetidos ganham sequências novas,
+ * mas a mesma origem, e o consumidor pode descartá-los.
+ * Um tamanho 0 marca o fim dos dados do segmento (o arquivo é pré-alocado com zeros). Quando o próximo registro
+ * não cabe, o restante do segmento fica vazio e a gravação continua no segmento seguinte.
+ * A gravação escreve o tamanho por último: um registro pela metade (queda no meio da escrita) é ignorado na reabertura.
+ * Sem sincronizar, os dados ficam no page cache: sobrevivem a uma queda da aplicação, mas não do sistema operacional.
+ */
+public class LogMudancas {
+
+    static final int CABECALHO = 4 + 8 + 8 + 8; // tamanho + sequência + instante + origem
+    private static final String PREFIXO = "mudancas-";
+    private static final String SUFIXO = ".log";
+
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final boolean sincronizar; // force() a cada gravação: sobrevive a queda de energia, mas é bem mais lento
+
+    private MappedByteBuffer segmento; // Segmento corrente (só a thread que grava, dentro do synchronized)
+    private long proximaSequencia = 1;
+    // Última sequência gravada por completo. A escrita volátil publica os bytes do segmento para os consumidores
+    // desta JVM: quem lê ultimaSequencia enxerga todos os registros até ela.
+    private volatile long ultimaSequencia;
+
+    private final LongAdder registros = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public LogMudancas(Path diretorio, int tamanhoSegmento, boolean sincronizar) {
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = tamanhoSegmento;
+        this.sincronizar = sincronizar;
+    }
+
+    /**
+     * Abre o último segmento existente (ou cria o primeiro) e continua a numeração de onde parou.
+     */
+    public synchronized void abrir() {
+        try {
+            Files.createDirectories(diretorio);
+            List<Long> inicios = inicioDosSegmentos();
+            long inicio = inicios.isEmpty() ? 1 : inicios.get(inicios.size() - 1);
+            segmento = mapear(inicio);
+            proximaSequencia = inicio;
+            // Percorre o segmento até o primeiro registro vazio ou incompleto
+            int posicao = 0;
+            while (posicao + CABECALHO <= segmento.capacity()) {
+                int tamanho = segmento.getInt(posicao);
+                if (tamanho < CABECALHO || posicao + tamanho > segmento.capacity()) {
+                    break;
+                }
+                proximaSequencia = segmento.getLong(posicao + 4) + 1;
+                posicao += tamanho;
+            }
+            segmento.position(posicao);
+            ultimaSequencia = proximaSequencia - 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Grava as alterações em sequência, sem origem, e retorna a última sequência atribuída.
+     */
+    public long acrescentar(List<MudancaCatalogo> mudancas) {
+        return acrescentar(mudancas, new long[mudancas.size()]);
+    }
+
+    /**
+     * Grava as alterações em sequência e retorna a última sequência atribuída. origens[i] é o id no outbox de
+     * mudancas.get(i). As alterações de uma mesma chamada ficam contíguas no log.
+     */
+    public synchronized long acrescentar(List<MudancaCatalogo> mudancas, long[] origens) {
+        long instante = System.currentTimeMillis();
+        for (int i = 0; i < mudancas.size(); i++) {
+            MudancaCatalogo mudanca = mudancas.get(i);
+            byte[] conteudo = mudanca.conteudo();
+            int tamanho = CABECALHO + conteudo.length;
+            if (tamanho > tamanhoSegmento) {
+                throw new IllegalArgumentException("Registro de " + tamanho + " bytes maior que o segmento: " + mudanca);
+            }
+            if (segmento.remaining() < tamanho) {
+                rotacionar();
+            }
+            int posicao = segmento.position();
+            segmento.putLong(posicao + 4, proximaSequencia);
+            segmento.putLong(posicao + 12, instante);
+            segmento.putLong(posicao + 20, origens[i]);
+            segmento.put(posicao + CABECALHO, conteudo);
+            segmento.putInt(posicao, tamanho); // Por último: até aqui o registro não existe para a leitura
+            segmento.position(posicao + tamanho);
+            proximaSequencia++;
+            bytes.add(tamanho);
+        }
+        if (sincronizar) {
+            segmento.force();
+        }
+        registros.add(mudancas.size());
+        ultimaSequencia = proximaSequencia - 1;
+        return ultimaSequencia;
+    }
+
+    private void rotacionar() {
+        if (sincronizar) {
+            segmento.force();
+        }
+        segmento = mapear(proximaSequencia); // O mapeamento anterior continua válido para quem ainda está lendo
+    }
+
+    /**
+     * Apaga os segmentos cujos registros são todos anteriores ou iguais à sequência informada
+     * (já processados por todos os consumidores). O segmento corrente nunca é apagado.
+     * Normalmente chamado com menorOffsetConfirmado(); um consumidor que ficar para trás não consegue mais reabrir.
+     */
+    public synchronized void descartarAte(long sequencia) {
+        try {
+            List<Long> inicios = inicioDosSegmentos();
+            for (int i = 0; i < inicios.size() - 1; i++) {
+                if (inicios.get(i + 1) - 1 <= sequencia) { // Última sequência do segmento i
+                    Files.deleteIfExists(arquivo(inicios.get(i)));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Menor offset confirmado entre todos os arquivos "<nome>.offset" do diretório, inclusive de consumidores que
+     * não estão abertos nesta JVM (ainda não se reconectaram após reiniciar). Vazio se não houver nenhum.
+     */
+    public OptionalLong menorOffsetConfirmado() {
+        try (Stream<Path> lista = Files.list(diretorio)) {
+            List<Path> offsets = lista.filter(p -> p.getFileName().toString().endsWith(ConsumidorMudancas.SUFIXO_OFFSET)).toList();
+            long menor = Long.MAX_VALUE;
+            for (Path offset : offsets) {
+                menor = Math.min(menor, ConsumidorMudancas.lerOffset(offset));
+            }
+            return offsets.isEmpty() ? OptionalLong.empty() : OptionalLong.of(menor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized void fechar() {
+        if (segmento != null) {
+            segmento.force();
+        }
+    }
+
+    /**
+     * Abre um consumidor que retoma do offset salvo com o mesmo nome (ou do início do log).
+     */
+    public ConsumidorMudancas consumidor(String nome) {
+        return new ConsumidorMudancas(this, nome);
+    }
+
+    public long ultimaSequencia() {
+        return ultimaSequencia;
+    }
+
+    public long registros() {
+        return registros.sum(); // Gravados por esta instância (desde a abertura)
+    }
+
+    public long bytes() {
+        return bytes.sum();
+    }
+
+    Path diretorio() {
+        return diretorio;
+    }
+
+    List<Long> inicioDosSegmentos() throws IOException {
+        try (Stream<Path> lista = Files.list(diretorio)) {
+            return lista.map(p -> p.getFileName().toString())
+                    .filter(nome -> nome.startsWith(PREFIXO) && nome.endsWith(SUFIXO))
+                    .map(nome -> Long.parseLong(nome.substring(PREFIXO.length(), nome.length() - SUFIXO.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    Path arquivo(long inicio) {
+        return diretorio.resolve(PREFIXO + String.format("%020d", inicio) + SUFIXO);
+    }
+
+    private MappedByteBuffer mapear(long inicio) {
+        try (FileChannel canal = FileChannel.open(arquivo(inicio),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento); // Estende o arquivo com zeros
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
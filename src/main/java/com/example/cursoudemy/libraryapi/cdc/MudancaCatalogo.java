@@ -0,0 +1,22 @@
+package com.example.cursoudemy.libraryapi.cdc;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Uma alteração do catálogo ainda sem número de sequência (ela recebe o número ao ser gravada no LogMudancas).
+ * No log o conteúdo é gravado como "entidade;operacao;chave", por exemplo "Livro;ALTERACAO;3f2b...".
+ * Na remoção de um gênero inteiro por truncate da partição a chave é o filtro: "Livro;REMOCAO_EM_MASSA;genero=FICCAO".
+ */
+public record MudancaCatalogo(String entidade, Operacao operacao, String chave) {
+
+    public enum Operacao {
+        INSERCAO,
+        ALTERACAO,
+        REMOCAO,
+        REMOCAO_EM_MASSA // Partição inteira esvaziada (truncate): chave = filtro
+    }
+
+    byte[] conteudo() {
+        return (entidade + ";" + operacao + ";" + chave).getBytes(StandardCharsets.UTF_8);
+    }
+}
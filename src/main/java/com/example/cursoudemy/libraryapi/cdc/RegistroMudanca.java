@@ -0,0 +1,26 @@
+package com.example.cursoudemy.libraryapi.cdc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Registro lido do LogMudancas. O conteúdo é uma fatia somente leitura do segmento mapeado em memória (sem cópia):
+ * consumidores que só repassam os bytes (para um índice de busca, por exemplo) nunca precisam decodificá-los.
+ * origem: id da alteração no outbox. A transferência é "no mínimo uma vez": um lote repetido reaparece com
+ * sequências novas e as mesmas origens, então o consumidor descarta as origens que já processou. As origens não são
+ * crescentes no log (transações em linhas diferentes confirmam fora da ordem dos ids): compare por igualdade.
+ */
+public record RegistroMudanca(long sequencia, long instante, long origem, ByteBuffer conteudo) {
+
+    /**
+     * Conteúdo decodificado ("entidade;operacao;chave"). Ao contrário do conteudo(), cria uma String nova.
+     */
+    public String texto() {
+        return StandardCharsets.UTF_8.decode(conteudo.duplicate()).toString();
+    }
+
+    public MudancaCatalogo mudanca() {
+        String[] campos = texto().split(";", 3);
+        return new MudancaCatalogo(campos[0], MudancaCatalogo.Operacao.valueOf(campos[1]), campos[2]);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.cursoudemy.libraryapi.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration // Habilita os métodos @Scheduled (ex.: gravação periódica do PrecoWriteBehindService)
+@EnableScheduling
+public class AgendamentoConfiguration {
+}
@@ -0,0 +1,37 @@
+package com.example.cursoudemy.libraryapi.config;
+
+import com.example.cursoudemy.libraryapi.cdc.FeedMudancas;
+import com.example.cursoudemy.libraryapi.cdc.LogMudancas;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+
+@Configuration // Configura o feed de alterações do catálogo (change data capture) em um log local mapeado em memória
+@ConditionalOnProperty(name = "libraryapi.cdc.enabled", havingValue = "true")
+public class FeedMudancasConfiguration {
+
+    @Bean(initMethod = "abrir", destroyMethod = "fechar") // Continua a numeração do log existente e grava tudo no encerramento
+    public LogMudancas logMudancas(
+            @Value("${libraryapi.cdc.diretorio:./data/mudancas}") Path diretorio, // Segmentos e offsets dos consumidores
+            @Value("${libraryapi.cdc.tamanho-segmento:67108864}") int tamanhoSegmento, // Bytes por segmento (64 MB)
+            @Value("${libraryapi.cdc.sincronizar:false}") boolean sincronizar) { // force() a cada commit
+        return new LogMudancas(diretorio, tamanhoSegmento, sincronizar);
+    }
+
+    @Bean
+    public FeedMudancas feedMudancas(LogMudancas logMudancas, JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${libraryapi.cdc.tamanho-lote:1000}") int tamanhoLote, // Registros do outbox por transferência
+                                     @Value("${libraryapi.cdc.drenar:false}") boolean drenar) { // Só em uma instância
+        TransactionTemplate transacaoPropria = new TransactionTemplate(transactionManager);
+        transacaoPropria.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return new FeedMudancas(logMudancas, jdbcTemplate, transacaoPropria, tamanhoLote, drenar);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.cursoudemy.libraryapi.config;
+
+import com.example.cursoudemy.libraryapi.logging.SqlCapturaProxy;
+import com.example.cursoudemy.libraryapi.logging.SqlLogPipeline;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration // Configura o log assíncrono de SQL no lugar do show-sql/format_sql do Hibernate
+@ConditionalOnProperty(name = "libraryapi.sql-log.enabled", havingValue = "true")
+public class SqlLogConfiguration {
+
+    @Bean(initMethod = "iniciar", destroyMethod = "fechar") // Inicia a thread de log e drena o buffer no encerramento
+    public SqlLogPipeline sqlLogPipeline(
+            @Value("${libraryapi.sql-log.capacity:8192}") int capacidade, // Tamanho do buffer circular
+            @Value("${libraryapi.sql-log.sample-rate:1.0}") double taxaAmostragem, // Fração de statements escritos por completo
+            @Value("${libraryapi.sql-log.format:true}") boolean formatar) { // Formata o SQL como o hibernate.format_sql
+        return new SqlLogPipeline(capacidade, taxaAmostragem, formatar);
+    }
+
+    // static: BeanPostProcessors precisam ser criados antes dos demais beans da configuração
+    @Bean
+    public static BeanPostProcessor sqlCapturaDataSourcePostProcessor(ObjectProvider<SqlLogPipeline> pipeline) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // Envolve o DataSource (HikariCP) para capturar cada statement executado
+                return bean instanceof DataSource dataSource ? SqlCapturaProxy.envolver(dataSource, pipeline.getObject()) : bean;
+            }
+        };
+    }
+}
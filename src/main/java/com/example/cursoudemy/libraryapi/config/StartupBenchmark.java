@@ -0,0 +1,51 @@
+package com.example.cursoudemy.libraryapi.config;
+
+import com.example.cursoudemy.libraryapi.repository.AutorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Mede o tempo de inicialização da aplicação até a primeira consulta ao banco ("time-to-first-query").
+ * O tempo é contado a partir do início da JVM, então inclui carregamento de classes (afetado pelo CDS),
+ * refresh do contexto (afetado pelo AOT) e o bootstrap do JPA (afetado pelo modo deferred).
+ * Ativado pela propriedade libraryapi.startup.benchmark.enabled (ligada no perfil "startup").
+ */
+@Component
+@ConditionalOnProperty(name = "libraryapi.startup.benchmark.enabled", havingValue = "true")
+public class StartupBenchmark implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupBenchmark.class);
+
+    private final AutorRepository autorRepository;
+
+    @Value("${libraryapi.startup.benchmark.exit:false}") // Encerra a aplicação após a medição (execuções repetidas)
+    boolean exit;
+
+    public StartupBenchmark(AutorRepository autorRepository) {
+        this.autorRepository = autorRepository;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long inicioJvm = ManagementFactory.getRuntimeMXBean().getStartTime(); // Instante em que a JVM foi iniciada
+        long pronto = System.currentTimeMillis() - inicioJvm; // Tempo até o contexto ficar pronto
+
+        autorRepository.count(); // Primeira consulta: aguarda o bootstrap deferred do JPA e abre a primeira conexão
+        long primeiraConsulta = System.currentTimeMillis() - inicioJvm;
+
+        // Linha em formato fixo para ser extraída pelo benchmark-startup.sh
+        log.info("startup-benchmark ready={}ms first-query={}ms", pronto, primeiraConsulta);
+
+        if (exit) {
+            System.exit(SpringApplication.exit(event.getApplicationContext(), () -> 0));
+        }
+    }
+}
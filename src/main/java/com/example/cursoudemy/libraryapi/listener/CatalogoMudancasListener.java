@@ -0,0 +1,53 @@
+package com.example.cursoudemy.libraryapi.listener;
+
+import com.example.cursoudemy.libraryapi.cdc.FeedMudancas;
+import com.example.cursoudemy.libraryapi.cdc.MudancaCatalogo.Operacao;
+import com.example.cursoudemy.libraryapi.models.Autor;
+import com.example.cursoudemy.libraryapi.models.Livro;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Entity listener de Livro e Autor que publica cada inserção, alteração e remoção feita pelo JPA no FeedMudancas.
+ * Os callbacks rodam no flush, mas o feed só grava no log depois do commit da transação.
+ * Assim como o LivroResumoListener, obtém o feed por ObjectProvider só no primeiro callback (bootstrap deferred);
+ * com libraryapi.cdc.enabled=false não há feed e os callbacks não fazem nada.
+ * Operações em massa (JPQL ou JDBC) não disparam callbacks: ver LivroOperacoesEmLoteRepositoryImpl.
+ */
+public class CatalogoMudancasListener {
+
+    private final ObjectProvider<FeedMudancas> feedMudancas;
+
+    public CatalogoMudancasListener(ObjectProvider<FeedMudancas> feedMudancas) {
+        this.feedMudancas = feedMudancas;
+    }
+
+    @PostPersist
+    public void aoInserir(Object entidade) {
+        registrar(entidade, Operacao.INSERCAO);
+    }
+
+    @PostUpdate
+    public void aoAtualizar(Object entidade) {
+        registrar(entidade, Operacao.ALTERACAO);
+    }
+
+    @PostRemove
+    public void aoRemover(Object entidade) {
+        registrar(entidade, Operacao.REMOCAO);
+    }
+
+    private void registrar(Object entidade, Operacao operacao) {
+        FeedMudancas feed = feedMudancas.getIfAvailable();
+        if (feed == null) {
+            return;
+        }
+        if (entidade instanceof Livro livro) {
+            feed.registrar("Livro", operacao, livro.getId());
+        } else if (entidade instanceof Autor autor) {
+            feed.registrar("Autor", operacao, autor.getId());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.cursoudemy.libraryapi.listener;
+
+import com.example.cursoudemy.libraryapi.models.Autor;
+import com.example.cursoudemy.libraryapi.models.Livro;
+import com.example.cursoudemy.libraryapi.service.AutorResumoService;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Entity listener do Livro que mantém o resumo por autor (AutorResumoService) a cada inserção, alteração
+ * (inclusive troca de autor com setAutor) e remoção feita pelo JPA.
+ * Os callbacks rodam no flush, dentro da transação do livro, então o delta é gravado junto com a alteração.
+ * O Hibernate cria a instância pelo Spring (SpringBeanContainer). O serviço é obtido por ObjectProvider só no primeiro
+ * callback: com o bootstrap deferred do JPA (perfil startup) o listener é criado em outra thread enquanto o contexto
+ * ainda está subindo, e buscar o bean nesse momento travaria as duas threads.
+ * Operações em massa (JPQL ou JDBC) não disparam callbacks: ver LivroOperacoesEmLoteRepositoryImpl.
+ */
+public class LivroResumoListener {
+
+    private final ObjectProvider<AutorResumoService> autorResumoService;
+
+    public LivroResumoListener(ObjectProvider<AutorResumoService> autorResumoService) {
+        this.autorResumoService = autorResumoService;
+    }
+
+    @PostLoad
+    public void aoCarregar(Livro livro) {
+        livro.setIdAutorCarregado(idAutor(livro)); // Guarda o autor original para detectar a troca no update
+    }
+
+    @PostPersist
+    public void aoInserir(Livro livro) {
+        UUID idAutor = idAutor(livro);
+        if (idAutor != null) {
+            autorResumoService.getObject().registrarDelta(idAutor, 1);
+        }
+        livro.setIdAutorCarregado(idAutor);
+    }
+
+    @PostUpdate
+    public void aoAtualizar(Livro livro) {
+        UUID anterior = livro.getIdAutorCarregado();
+        UUID atual = idAutor(livro);
+        if (Objects.equals(anterior, atual)) {
+            if (atual != null) {
+                autorResumoService.getObject().registrarDelta(atual, 0); // Mesmo autor: só data/preço podem ter mudado
+            }
+        } else { // Livro trocou de autor (setAutor): sai de um resumo e entra no outro
+            if (anterior != null) {
+                autorResumoService.getObject().registrarDelta(anterior, -1);
+            }
+            if (atual != null) {
+                autorResumoService.getObject().registrarDelta(atual, 1);
+            }
+        }
+        livro.setIdAutorCarregado(atual);
+    }
+
+    @PostRemove
+    public void aoRemover(Livro livro) {
+        UUID idAutor = livro.getIdAutorCarregado(); // Autor gravado no banco, mesmo que o objeto tenha sido alterado
+        if (idAutor != null) {
+            autorResumoService.getObject().registrarDelta(idAutor, -1);
+        }
+    }
+
+    private static UUID idAutor(Livro livro) {
+        Autor autor = livro.getAutor();
+        return autor != null ? autor.getId() : null; // getId() em proxy lazy não dispara consulta
+    }
+}
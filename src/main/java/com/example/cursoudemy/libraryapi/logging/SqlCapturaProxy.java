@@ -0,0 +1,201 @@
+package com.example.cursoudemy.libraryapi.logging;
+
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Proxies JDBC (DataSource -> Connection -> Statement -> ResultSet) que capturam o SQL, os binds, o tempo de
+ * execução e o número de linhas de cada statement e publicam um SqlEvento no SqlLogPipeline.
+ * A captura é barata (cópia dos binds e System.nanoTime); nada é formatado ou escrito na thread da requisição.
+ */
+public final class SqlCapturaProxy {
+
+    private SqlCapturaProxy() {
+    }
+
+    /**
+     * Envolve o DataSource mantendo todas as interfaces da implementação original (ex.: Closeable do HikariDataSource,
+     * para que o Spring continue fechando o pool no encerramento).
+     */
+    public static DataSource envolver(DataSource dataSource, SqlLogPipeline pipeline) {
+        return (DataSource) proxy(dataSource, ClassUtils.getAllInterfaces(dataSource), (p, metodo, args) -> {
+            Object resultado = invocar(dataSource, metodo, args);
+            return resultado instanceof Connection conexao ? envolverConexao(conexao, pipeline) : resultado;
+        });
+    }
+
+    private static Connection envolverConexao(Connection conexao, SqlLogPipeline pipeline) {
+        return (Connection) proxy(conexao, new Class<?>[]{Connection.class}, (p, metodo, args) -> {
+            Object resultado = invocar(conexao, metodo, args);
+            if (resultado instanceof Statement statement) {
+                // prepareStatement/prepareCall recebem o SQL; createStatement recebe o SQL só na execução
+                String sql = metodo.getName().startsWith("prepare") ? (String) args[0] : null;
+                return proxy(statement, new Class<?>[]{metodo.getReturnType()}, new StatementHandler(statement, sql, pipeline));
+            }
+            return resultado;
+        });
+    }
+
+    private static Object proxy(Object alvo, Class<?>[] interfaces, InvocationHandler handler) {
+        return Proxy.newProxyInstance(alvo.getClass().getClassLoader(), interfaces, handler);
+    }
+
+    private static Object invocar(Object alvo, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(alvo, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException(); // Repassa a SQLException original do driver
+        }
+    }
+
+    /**
+     * Acompanha um Statement/PreparedStatement: guarda os binds definidos via setXxx e mede cada execução.
+     */
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final SqlLogPipeline pipeline;
+        private final String sqlPreparado; // null para createStatement
+        private String sql; // Com Statement.addBatch(sql), os comandos do lote em andamento
+        private Object[] parametros = new Object[8];
+        private int quantidadeParametros; // Maior posição definida (binds nulos no fim também aparecem no log)
+        private final List<Object[]> lote = new ArrayList<>(); // Binds de cada addBatch
+        private ResultSetHandler resultadoAberto; // Última consulta ainda não publicada
+
+        StatementHandler(Statement statement, String sql, SqlLogPipeline pipeline) {
+            this.statement = statement;
+            this.sqlPreparado = sql;
+            this.sql = sql;
+            this.pipeline = pipeline;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nome = metodo.getName();
+
+            // setString(1, "x"), setObject(2, uuid, Types.OTHER)... -> guarda o valor na posição do parâmetro
+            // setNull(3, Types.VARCHAR): o segundo argumento é o tipo SQL, não o valor
+            if (nome.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer indice) {
+                guardarParametro(indice, nome.equals("setNull") ? null : args[1]);
+                return invocar(statement, metodo, args);
+            }
+            switch (nome) {
+                case "clearParameters" -> {
+                    Arrays.fill(parametros, null);
+                    quantidadeParametros = 0;
+                }
+                case "addBatch" -> {
+                    if (args != null) { // Statement.addBatch(sql)
+                        sql = sql == null ? (String) args[0] : sql + ";\n" + args[0];
+                    } else {
+                        lote.add(parametrosAtuais());
+                    }
+                }
+                case "clearBatch" -> {
+                    lote.clear();
+                    sql = sqlPreparado; // Um Statement reaproveitado não junta o lote descartado ao próximo
+                }
+                case "close" -> {
+                    if (resultadoAberto != null) {
+                        resultadoAberto.publicar(); // Statement fechado sem fechar o ResultSet: publica mesmo assim
+                    }
+                }
+                case "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch" -> {
+                    return executar(metodo, args);
+                }
+                default -> {
+                }
+            }
+            return invocar(statement, metodo, args);
+        }
+
+        private Object executar(Method metodo, Object[] args) throws Throwable {
+            String sqlExecutado = args != null && args.length > 0 && args[0] instanceof String s ? s : sql;
+            List<Object[]> binds = lote.isEmpty() ? List.<Object[]>of(parametrosAtuais()) : List.copyOf(lote);
+            String thread = Thread.currentThread().getName();
+
+            long inicio = System.nanoTime();
+            Object resultado;
+            try {
+                resultado = invocar(statement, metodo, args);
+            } finally {
+                lote.clear(); // O driver esvazia o lote a cada execução, mesmo com erro
+                sql = sqlPreparado;
+            }
+            long nanos = System.nanoTime() - inicio;
+
+            if (resultado instanceof ResultSet resultSet) {
+                // Consulta: o número de linhas só é conhecido quando o ResultSet é percorrido e fechado
+                resultadoAberto = new ResultSetHandler(resultSet,
+                        linhas -> pipeline.publicar(new SqlEvento(sqlExecutado, binds, nanos, linhas, thread, System.currentTimeMillis())));
+                return proxy(resultSet, new Class<?>[]{ResultSet.class}, resultadoAberto);
+            }
+            pipeline.publicar(new SqlEvento(sqlExecutado, binds, nanos, linhas(resultado), thread, System.currentTimeMillis()));
+            return resultado;
+        }
+
+        private long linhas(Object resultado) {
+            if (resultado instanceof Integer i) return i;
+            if (resultado instanceof Long l) return l;
+            if (resultado instanceof int[] lote) return Arrays.stream(lote).filter(n -> n > 0).asLongStream().sum();
+            if (resultado instanceof long[] lote) return Arrays.stream(lote).filter(n -> n > 0).sum();
+            return -1; // execute() com resultado boolean: quantidade desconhecida
+        }
+
+        private void guardarParametro(int indice, Object valor) {
+            if (indice > parametros.length) {
+                parametros = Arrays.copyOf(parametros, Math.max(indice, parametros.length * 2));
+            }
+            parametros[indice - 1] = valor;
+            quantidadeParametros = Math.max(quantidadeParametros, indice);
+        }
+
+        private Object[] parametrosAtuais() {
+            return Arrays.copyOf(parametros, quantidadeParametros);
+        }
+    }
+
+    /**
+     * Conta as linhas lidas de um ResultSet e publica o evento da consulta quando ele é fechado.
+     */
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final LongConsumer aoFechar;
+        private long linhas;
+        private boolean publicado;
+
+        ResultSetHandler(ResultSet resultSet, LongConsumer aoFechar) {
+            this.resultSet = resultSet;
+            this.aoFechar = aoFechar;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            Object resultado = invocar(resultSet, metodo, args);
+            if ("next".equals(metodo.getName()) && Boolean.TRUE.equals(resultado)) {
+                linhas++;
+            } else if ("close".equals(metodo.getName())) {
+                publicar();
+            }
+            return resultado;
+        }
+
+        void publicar() {
+            if (!publicado) {
+                publicado = true;
+                aoFechar.accept(linhas);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.cursoudemy.libraryapi.logging;
+
+import java.util.List;
+
+/**
+ * Registro imutável de um statement executado, capturado na thread da requisição e publicado no SqlRingBuffer.
+ * A formatação e a escrita acontecem depois, na thread de background do SqlLogPipeline.
+ *
+ * @param sql        SQL exatamente como enviado ao driver JDBC
+ * @param parametros valores dos binds (um item por execução; em batch, um item por addBatch)
+ * @param nanos      tempo de execução do statement no driver
+ * @param linhas     linhas lidas (consultas) ou afetadas (insert/update/delete); -1 quando desconhecido
+ * @param thread     nome da thread que executou o statement
+ * @param instante   momento da execução (System.currentTimeMillis)
+ */
+public record SqlEvento(String sql, List<Object[]> parametros, long nanos, long linhas, String thread, long instante) {
+}
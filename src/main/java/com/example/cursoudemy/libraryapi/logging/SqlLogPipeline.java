@@ -0,0 +1,226 @@
+package com.example.cursoudemy.libraryapi.logging;
+
+import org.hibernate.engine.jdbc.internal.FormatStyle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * Pipeline assíncrono de log de SQL: substitui o show-sql/format_sql do Hibernate, que imprime cada statement
+ * de forma síncrona na thread da requisição.
+ * - As threads de requisição apenas publicam um SqlEvento no SqlRingBuffer (sem locks).
+ * - Uma thread de background formata e escreve os statements amostrados no logger "libraryapi.sql".
+ * - Todos os statements (amostrados ou não) entram nas estatísticas agregadas por formato de statement.
+ * - Com buffer cheio o produtor só atualiza as estatísticas (sem formatar nem escrever): a linha de log do statement
+ *   é descartada e contada. Nas estatísticas nada é perdido, e no desligamento o buffer é drenado antes de encerrar.
+ * As estatísticas podem ser consultadas sob demanda pela operação JMX "dump" (libraryapi:name=sqlLog).
+ */
+@ManagedResource(objectName = "libraryapi:name=sqlLog")
+public class SqlLogPipeline {
+
+    private static final Logger sqlLog = LoggerFactory.getLogger("libraryapi.sql");
+    private static final Logger log = LoggerFactory.getLogger(SqlLogPipeline.class);
+
+    private static final Pattern LITERAL_TEXTO = Pattern.compile("'(?:[^']|'')*'"); // 'texto' -> ?
+    private static final Pattern LITERAL_NUMERO = Pattern.compile("\\b\\d+(\\.\\d+)?\\b"); // 123 -> ?
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+
+    private final SqlRingBuffer buffer;
+    private final double taxaAmostragem; // Fração dos statements escritos por completo (0.0 a 1.0)
+    private final boolean formatar; // Equivalente ao hibernate.format_sql
+
+    private final Map<String, EstatisticaStatement> estatisticas = new ConcurrentHashMap<>();
+    private final LongAdder transbordos = new LongAdder(); // Eventos agregados na thread do produtor (buffer cheio)
+    private final LongAdder linhasDescartadas = new LongAdder(); // Statements amostrados que não foram escritos (buffer cheio)
+
+    private final Thread consumidor;
+    private volatile boolean fechado;
+
+    public SqlLogPipeline(int capacidade, double taxaAmostragem, boolean formatar) {
+        this.buffer = new SqlRingBuffer(capacidade);
+        this.taxaAmostragem = taxaAmostragem;
+        this.formatar = formatar;
+        this.consumidor = new Thread(this::consumir, "sql-log");
+        this.consumidor.setDaemon(true);
+    }
+
+    public void iniciar() {
+        consumidor.start();
+    }
+
+    /**
+     * Chamado na thread da requisição: apenas publica o evento, a formatação fica para a thread de background.
+     */
+    public void publicar(SqlEvento evento) {
+        if (fechado) {
+            processar(evento); // Pipeline encerrado: não há mais thread de log, processa aqui para não perder o evento
+            return;
+        }
+        if (!buffer.offer(evento)) {
+            // Buffer cheio (pico de carga): formatar e escrever aqui atrasaria justamente a requisição.
+            // Só agrega nas estatísticas; a linha de log, se amostrada, é descartada e contada.
+            transbordos.increment();
+            agregar(evento);
+            if (amostrado()) {
+                linhasDescartadas.increment();
+            }
+            return;
+        }
+        if (fechado) {
+            drenar(); // Publicou durante o encerramento: garante que o evento não fique esquecido no buffer
+        }
+    }
+
+    /**
+     * Encerra a thread de background e escreve tudo o que ainda estiver no buffer.
+     */
+    public void fechar() {
+        fechado = true;
+        LockSupport.unpark(consumidor);
+        try {
+            consumidor.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drenar();
+        log.info("Estatisticas de SQL no encerramento:\n{}", dump());
+    }
+
+    private void consumir() {
+        while (!fechado) {
+            if (drenar() == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1)); // Buffer vazio: espera sem ocupar CPU
+            }
+        }
+    }
+
+    // Sincronizado para manter um único consumidor do buffer (thread de background ou quem estiver encerrando)
+    private synchronized int drenar() {
+        int processados = 0;
+        SqlEvento evento;
+        while ((evento = buffer.poll()) != null) {
+            processar(evento);
+            processados++;
+        }
+        return processados;
+    }
+
+    private void processar(SqlEvento evento) {
+        agregar(evento);
+
+        if (amostrado()) {
+            String sql = formatar ? FormatStyle.BASIC.getFormatter().format(evento.sql()) : evento.sql();
+            StringBuilder binds = new StringBuilder();
+            for (Object[] parametros : evento.parametros()) {
+                binds.append("\n    binds: ").append(Arrays.toString(parametros));
+            }
+            sqlLog.info("[{}] {}ms linhas={} {}{}", evento.thread(),
+                    TimeUnit.NANOSECONDS.toMicros(evento.nanos()) / 1000.0, evento.linhas(), sql, binds);
+        }
+    }
+
+    private void agregar(SqlEvento evento) {
+        estatisticas.computeIfAbsent(formato(evento.sql()), EstatisticaStatement::new).registrar(evento);
+    }
+
+    private boolean amostrado() {
+        return sqlLog.isInfoEnabled() && (taxaAmostragem >= 1.0 || ThreadLocalRandom.current().nextDouble() < taxaAmostragem);
+    }
+
+    /**
+     * Formato do statement: SQL normalizado com literais trocados por '?', usado como chave da agregação.
+     */
+    static String formato(String sql) {
+        String semTexto = LITERAL_TEXTO.matcher(sql).replaceAll("?");
+        String semNumero = LITERAL_NUMERO.matcher(semTexto).replaceAll("?");
+        return ESPACOS.matcher(semNumero).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Estatísticas agregadas por formato de statement, ordenadas pelo tempo total (mais custosos primeiro).
+     */
+    @ManagedOperation
+    public String dump() {
+        drenar(); // Inclui os eventos que ainda estão no buffer
+        StringBuilder sb = new StringBuilder(String.format("%10s %12s %10s %12s  %s%n", "execucoes", "total(ms)", "media(ms)", "linhas", "statement"));
+        estatisticas.values().stream()
+                .sorted(Comparator.comparingLong(EstatisticaStatement::nanosTotal).reversed())
+                .forEach(e -> sb.append(String.format(Locale.ROOT, "%10d %12.2f %10.3f %12d  %s%n",
+                        e.execucoes(), e.nanosTotal() / 1_000_000.0, e.nanosTotal() / 1_000_000.0 / Math.max(1, e.execucoes()),
+                        e.linhas(), e.formato())));
+        sb.append("eventos agregados fora da thread de log: ").append(transbordos.sum())
+                .append(", linhas de log descartadas: ").append(linhasDescartadas.sum());
+        return sb.toString();
+    }
+
+    /**
+     * Zera as estatísticas agregadas (por exemplo, no início de uma janela de medição).
+     */
+    @ManagedOperation
+    public void limparEstatisticas() {
+        estatisticas.clear();
+    }
+
+    /**
+     * Statements amostrados que não foram escritos no log porque o buffer estava cheio.
+     */
+    public long linhasDescartadas() {
+        return linhasDescartadas.sum();
+    }
+
+    public Map<String, EstatisticaStatement> estatisticas() {
+        drenar();
+        return estatisticas;
+    }
+
+    /**
+     * Contadores de um formato de statement. LongAdder porque o registro pode acontecer na thread de log
+     * e, em transbordo, nas threads de requisição ao mesmo tempo.
+     */
+    public static class EstatisticaStatement {
+        private final String formato;
+        private final LongAdder execucoes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder linhas = new LongAdder();
+
+        EstatisticaStatement(String formato) {
+            this.formato = formato;
+        }
+
+        void registrar(SqlEvento evento) {
+            execucoes.increment();
+            nanos.add(evento.nanos());
+            if (evento.linhas() > 0) {
+                linhas.add(evento.linhas());
+            }
+        }
+
+        public String formato() {
+            return formato;
+        }
+
+        public long execucoes() {
+            return execucoes.sum();
+        }
+
+        public long nanosTotal() {
+            return nanos.sum();
+        }
+
+        public long linhas() {
+            return linhas.sum();
+        }
+    }
+}
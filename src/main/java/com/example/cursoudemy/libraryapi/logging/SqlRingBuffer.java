@@ -0,0 +1,72 @@
+package com.example.cursoudemy.libraryapi.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Buffer circular limitado e sem locks para vários produtores (threads de requisição) e um consumidor
+ * (thread de log). Cada posição tem um número de sequência que indica se ela está livre para escrita
+ * ou pronta para leitura, então produtores só disputam um compareAndSet na cauda.
+ * Quando o buffer está cheio, offer() retorna false imediatamente em vez de bloquear o produtor.
+ */
+public class SqlRingBuffer {
+
+    private final int capacidade; // Sempre potência de 2 para o cálculo do índice com máscara
+    private final int mascara;
+    private final AtomicReferenceArray<SqlEvento> eventos;
+    private final AtomicLongArray sequencias; // sequencia == posição: livre; sequencia == posição + 1: preenchida
+    private final AtomicLong cauda = new AtomicLong(); // Próxima posição de escrita (disputada pelos produtores)
+    private long cabeca; // Próxima posição de leitura (somente o consumidor acessa, sob o lock do SqlLogPipeline)
+
+    public SqlRingBuffer(int capacidadeMinima) {
+        this.capacidade = Integer.highestOneBit(Math.max(2, capacidadeMinima - 1)) << 1;
+        this.mascara = capacidade - 1;
+        this.eventos = new AtomicReferenceArray<>(capacidade);
+        this.sequencias = new AtomicLongArray(capacidade);
+        for (int i = 0; i < capacidade; i++) {
+            sequencias.set(i, i);
+        }
+    }
+
+    /**
+     * Publica um evento sem bloquear. Retorna false se o buffer estiver cheio.
+     */
+    public boolean offer(SqlEvento evento) {
+        while (true) {
+            long posicao = cauda.get();
+            int indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - posicao;
+            if (diferenca == 0) { // Posição livre: tenta reservá-la
+                if (cauda.compareAndSet(posicao, posicao + 1)) {
+                    eventos.set(indice, evento);
+                    sequencias.set(indice, posicao + 1); // Libera a posição para o consumidor
+                    return true;
+                }
+            } else if (diferenca < 0) { // Consumidor ainda não liberou esta posição: buffer cheio
+                return false;
+            }
+            // diferenca > 0: outro produtor reservou esta posição, tenta novamente com a cauda atualizada
+        }
+    }
+
+    /**
+     * Remove o próximo evento ou retorna null se não houver nenhum pronto. Deve ser chamado por um único consumidor.
+     */
+    public SqlEvento poll() {
+        long posicao = cabeca;
+        int indice = (int) (posicao & mascara);
+        if (sequencias.get(indice) != posicao + 1) {
+            return null;
+        }
+        SqlEvento evento = eventos.get(indice);
+        eventos.set(indice, null);
+        sequencias.set(indice, posicao + capacidade); // Libera a posição para a próxima volta dos produtores
+        cabeca = posicao + 1;
+        return evento;
+    }
+
+    public int capacidade() {
+        return capacidade;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.cursoudemy.libraryapi.models;
 
+import com.example.cursoudemy.libraryapi.listener.CatalogoMudancasListener;
 import jakarta.persistence.*; // Importa as anotações JPA para mapeamento ORM
 import lombok.Getter; // Gera automaticamente os métodos getter
 import lombok.Setter; // Gera automaticamente os métodos setter
@@ -14,6 +15,7 @@ import java.util.UUID; // Identificador único universal
 @Getter // Lombok: gera os getters para todos os campos
 @Setter // Lombok: gera os setters para todos os campos
 @ToString(exclude = "livros") // Lombok: gera o método toString para a classe poder ser impressa como string
+@EntityListeners(CatalogoMudancasListener.class) // Publica as alterações no feed de mudanças do catálogo
 public class Autor {
 
     @Id // Indica o campo como chave primária
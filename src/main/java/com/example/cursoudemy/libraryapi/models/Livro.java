@@ -1,7 +1,10 @@
 package com.example.cursoudemy.libraryapi.models;
 
+import com.example.cursoudemy.libraryapi.listener.CatalogoMudancasListener;
+import com.example.cursoudemy.libraryapi.listener.LivroResumoListener;
 import jakarta.persistence.*; // Importa as anotações JPA para mapeamento ORM
 import lombok.Data; // Lombok: gera getters, setters, equals, hashCode e toString automaticamente
+import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 import java.math.BigDecimal;
@@ -11,7 +14,11 @@ import java.util.UUID; // Identificador único universal
 @Entity // Indica que esta classe é uma entidade JPA
 @Table(name = "livro") // Mapeia para a tabela 'livro' no banco de dados
 @Data // Lombok: gera métodos utilitários para todos os campos
-@ToString(exclude = "autor")
+@ToString(exclude = {"autor", "idAutorCarregado"})
+@EntityListeners({
+        LivroResumoListener.class, // Mantém o resumo desnormalizado por autor (quantidade, datas e preços)
+        CatalogoMudancasListener.class // Publica as alterações no feed de mudanças do catálogo
+})
 public class Livro {
     @Id // Indica o campo como chave primária
     @Column(name = "id") // Mapeia para a coluna 'id'
@@ -42,6 +49,9 @@ public class Livro {
     @JoinColumn(name = "id_autor") // Mapeia para a coluna 'autor' (chave estrangeira)
     private Autor autor; // Referência ao autor do livro
 
+    @Transient // Não persistido: autor lido do banco, usado pelo LivroResumoListener para detectar a troca de autor
+    @EqualsAndHashCode.Exclude
+    private UUID idAutorCarregado;
 
 }
 
@@ -0,0 +1,24 @@
+package com.example.cursoudemy.libraryapi.repository;
+
+import com.example.cursoudemy.libraryapi.models.GeneroLivro;
+
+import java.time.LocalDate;
+
+/**
+ * Fragmento de repositório com operações em lote que precisam de implementação própria (LivroOperacoesEmLoteRepositoryImpl),
+ * por não caberem em uma única @Query. O Spring Data junta este fragmento ao LivroRepository, que o estende.
+ * Operações em massa não disparam os entity listeners do Livro, então a implementação também mantém o resumo por autor.
+ */
+public interface LivroOperacoesEmLoteRepository {
+
+    /**
+     * Deleta todos os livros de um gênero. Se a tabela livro estiver particionada por gênero (LIST) e o gênero
+     * tiver partição exclusiva, a partição é esvaziada com truncate em vez de apagar linha a linha.
+     */
+    void deleteByGenero(GeneroLivro generoLivro);
+
+    /**
+     * Atualiza a data de publicação de todos os livros para uma data específica.
+     */
+    void atualizarDataDePublicacaoDeLivros(LocalDate data);
+}
@@ -0,0 +1,95 @@
+package com.example.cursoudemy.libraryapi.repository;
+
+import com.example.cursoudemy.libraryapi.cdc.FeedMudancas;
+import com.example.cursoudemy.libraryapi.cdc.MudancaCatalogo.Operacao;
+import com.example.cursoudemy.libraryapi.models.GeneroLivro;
+import com.example.cursoudemy.libraryapi.service.AutorResumoService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Implementação do fragmento LivroOperacoesEmLoteRepository (o sufixo "Impl" é o que o Spring Data procura).
+ * Usa o catálogo do PostgreSQL para descobrir se livro está particionada (ver src/main/resources/db).
+ * Como não passam pelos entity listeners, publicam no FeedMudancas um registro por livro alterado/apagado (ids do
+ * returning). Um registro "em massa" com o filtro só vale para o truncate da partição: com a partição travada, nenhum
+ * livro do gênero pode ter sido inserido por uma transação ainda sem commit, então o filtro cobre exatamente o que saiu.
+ * Com um filtro no delete comum, um livro inserido por uma transação que confirma depois (e que por isso vem depois
+ * no feed) seria apagado pelo consumidor, embora continue no banco.
+ */
+public class LivroOperacoesEmLoteRepositoryImpl implements LivroOperacoesEmLoteRepository {
+
+    // Partição cujo limite é exatamente um único gênero: FOR VALUES IN ('FICCAO')
+    // oid::regclass::text devolve o nome já com aspas/schema quando necessário, pronto para usar em DDL
+    private static final String PARTICAO_DO_GENERO = """
+            select c.oid::regclass::text
+            from pg_inherits i
+            join pg_class c on c.oid = i.inhrelid
+            where i.inhparent = to_regclass('livro')
+              and pg_get_expr(c.relpartbound, c.oid) = ?
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AutorResumoService autorResumoService;
+    private final ObjectProvider<FeedMudancas> feedMudancas; // Ausente com libraryapi.cdc.enabled=false
+
+    public LivroOperacoesEmLoteRepositoryImpl(JdbcTemplate jdbcTemplate, AutorResumoService autorResumoService,
+                                              ObjectProvider<FeedMudancas> feedMudancas) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.autorResumoService = autorResumoService;
+        this.feedMudancas = feedMudancas;
+    }
+
+    @Override
+    @Transactional
+    public void deleteByGenero(GeneroLivro generoLivro) {
+        String limite = "FOR VALUES IN ('" + generoLivro.name() + "')";
+        List<String> particoes = jdbcTemplate.queryForList(PARTICAO_DO_GENERO, String.class, limite);
+
+        entityManager.flush(); // Os comandos abaixo vão direto pelo JDBC: alterações pendentes do JPA vão antes
+
+        // Outbox só depois da remoção, com as linhas (ou a partição) já travadas: ordem do feed = ordem de commit
+        if (particoes.isEmpty()) {
+            // Tabela sem particionamento por gênero: delete em massa e deltas do resumo em um único statement
+            List<UUID> removidos = autorResumoService.removerLivrosPorGenero(generoLivro);
+            feedMudancas.ifAvailable(feed -> feed.registrar("Livro", Operacao.REMOCAO, removidos));
+        } else {
+            removerParticao(particoes.get(0), generoLivro);
+            feedMudancas.ifAvailable(feed -> feed.registrar("Livro", Operacao.REMOCAO_EM_MASSA, "genero=" + generoLivro.name()));
+        }
+    }
+
+    private void removerParticao(String particao, GeneroLivro generoLivro) {
+        // Todas as linhas do gênero estão em uma única partição: esvaziá-la com truncate é quase instantâneo,
+        // sem gerar uma linha de WAL por livro nem deixar tuplas mortas para o vacuum.
+        // Os locks são só da partição (detach/drop travariam a tabela livro inteira) e a partição continua a mesma,
+        // com suas configurações e índices.
+        // Antes da contagem dos deltas, SHARE ROW EXCLUSIVE: bloqueia quem escreve na partição (até o commit nenhum
+        // livro entra, sai ou troca de autor), mas não quem só lê. Consultas sem poda no planejamento (findById,
+        // findByIsbn, plano genérico de findByGenero) travam todas as partições e ficariam na fila durante toda a
+        // contagem com um ACCESS EXCLUSIVE. Só o truncate sobe para ACCESS EXCLUSIVE, e por pouco tempo.
+        // SHARE ROW EXCLUSIVE (e não SHARE) conflita consigo mesmo: duas remoções do mesmo gênero não ficam as duas
+        // com o lock esperando a outra para o truncate (deadlock); a segunda espera a primeira terminar.
+        jdbcTemplate.execute("lock table " + particao + " in share row exclusive mode");
+        autorResumoService.registrarRemocaoPorGenero(generoLivro);
+        jdbcTemplate.execute("truncate table " + particao);
+    }
+
+    @Override
+    @Transactional
+    public void atualizarDataDePublicacaoDeLivros(LocalDate data) {
+        entityManager.flush(); // O update vai direto pelo JDBC: alterações pendentes do JPA vão antes
+        List<UUID> alterados = jdbcTemplate.queryForList("update livro set data_publicacao = ? returning id", UUID.class, data);
+        autorResumoService.marcarTodosAutores(); // A última publicação de todos os autores mudou
+        feedMudancas.ifAvailable(feed -> feed.registrar("Livro", Operacao.ALTERACAO, alterados));
+    }
+}
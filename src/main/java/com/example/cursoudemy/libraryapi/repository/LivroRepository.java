@@ -4,13 +4,12 @@ import com.example.cursoudemy.libraryapi.models.Autor;
 import com.example.cursoudemy.libraryapi.models.GeneroLivro;
 import com.example.cursoudemy.libraryapi.models.Livro;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,7 +18,7 @@ import java.util.UUID;
  * e consultas customizadas. Utiliza Spring Data JPA para gerar automaticamente queries baseadas nos nomes dos métodos
  * e permite o uso de @Query para JPQL ou SQL nativo.
  */
-public interface LivroRepository extends JpaRepository<Livro, UUID> {
+public interface LivroRepository extends JpaRepository<Livro, UUID>, LivroOperacoesEmLoteRepository {
 
     // Query method: Busca todos os livros associados a um autor específico.
     // select * from livro where autor_id = ?
@@ -29,9 +28,12 @@ public interface LivroRepository extends JpaRepository<Livro, UUID> {
     // select * from livro where titulo = ?
     List<Livro> findByTitulo(String titulo);
 
-    // Query method: Busca livros pelo ISBN exato.
+    // Busca livros pelo ISBN exato.
     // select * from livro where isbn = ?
-    List<Livro> findByIsbn(String isbn);
+    // JPQL em vez de query method: o Hibernate 6.5 não guarda no cache de planos as consultas por criteria
+    // (que é como o Spring Data executa os query methods), e esta consulta é chamada muitas vezes seguidas.
+    @Query(" select l from Livro l where l.isbn = :isbn ")
+    List<Livro> findByIsbn(@Param("isbn") String isbn);
 
     // Query method: Busca livros que correspondam ao título e preço especificados.
     // select * from livro where titulo = ? and preco = ?
@@ -96,16 +98,33 @@ public interface LivroRepository extends JpaRepository<Livro, UUID> {
             @Param("genero") GeneroLivro generoLivro
     );
 
+    // Consultas com vários valores: uma única forma de SQL para qualquer quantidade de valores, então o Hibernate
+    // e o PostgreSQL reaproveitam o mesmo plano em cache (um "in (?, ?, ...)" comum gera um SQL por tamanho de lista).
+
+    // SQL nativo com array: todos os gêneros vão em um único parâmetro text[]
+    // select * from livro where genero = any(?) order by preco
+    @Query(value = " select * from livro where genero = any(cast(:generos as text[])) order by preco ", nativeQuery = true)
+    List<Livro> findByGeneroAny(@Param("generos") String[] generos);
+
+    // Busca livros de vários gêneros em uma consulta (em vez de um findByGenero por gênero).
+    default List<Livro> findByGeneros(Collection<GeneroLivro> generos) {
+        return findByGeneroAny(generos.stream().map(GeneroLivro::name).toArray(String[]::new)); // Mesmo texto gravado pelo EnumType.STRING
+    }
+
+    // SQL nativo com array: todos os ISBNs vão em um único parâmetro text[]
+    // select * from livro where isbn = any(?)
+    @Query(value = " select * from livro where isbn = any(cast(:isbns as text[])) ", nativeQuery = true)
+    List<Livro> findByIsbnAny(@Param("isbns") String[] isbns);
+
+    // JPQL com IN: select * from livro where genero in (?, ?, ...)
+    // Com hibernate.query.in_clause_parameter_padding a lista é completada até a próxima potência de 2
+    // (1, 2, 4, 8...), limitando a quantidade de SQLs diferentes em cache. JPQL (e não query method) para que o
+    // plano fique no cache de planos do Hibernate, como em findByIsbn.
+    @Query(" select l from Livro l where l.genero in :generos ")
+    List<Livro> findByGeneroIn(@Param("generos") Collection<GeneroLivro> generos);
+
     // JPQL para escrita (update, delete)
-    // Query de modificação: Deleta todos os livros de um gênero específico.
-    @Modifying // indica que a query é de modificação (insert, update, delete) e pode modificar registros
-    @Transactional // indica que a query é transacional, ou seja, deve ser executada dentro de uma transação do banco
-    @Query(" delete from Livro where genero = ?1 ")
-    void deleteByGenero(GeneroLivro generoLivro);
-
-    // Query de modificação: Atualiza a data de publicação de todos os livros para uma data específica.
-    @Modifying
-    @Transactional
-    @Query(" update Livro set dataPublicacao = ?1 ")
-    void atualizarDataDePublicacaoDeLivros(LocalDate data);
+    // deleteByGenero(GeneroLivro) e atualizarDataDePublicacaoDeLivros(LocalDate) ficam em LivroOperacoesEmLoteRepository:
+    // além do comando de modificação, precisam esvaziar a partição do gênero, manter o resumo por autor e publicar
+    // os livros alterados no feed de alterações, o que não cabe em uma única @Query.
 }
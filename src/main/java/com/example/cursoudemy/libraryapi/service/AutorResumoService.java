@@ -0,0 +1,207 @@
+package com.example.cursoudemy.libraryapi.service;
+
+import com.example.cursoudemy.libraryapi.models.GeneroLivro;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Resumo desnormalizado por autor (tabelas em src/main/resources/db/autor_resumo.sql), para a página de perfil do
+ * autor não precisar carregar todos os livros com findByAutor.
+ * - Cada escrita em livro grava apenas um delta em uma faixa sorteada de autor_resumo_delta (dentro da mesma
+ *   transação), então escritas concorrentes no mesmo autor não disputam uma única linha.
+ * - Um job periódico soma os deltas em autor_resumo e recalcula última publicação e faixa de preço dos autores tocados.
+ * - A quantidade de livros é sempre exata (resumo + deltas pendentes); datas e preços ficam no máximo um ciclo atrasados.
+ */
+@Service
+public class AutorResumoService {
+
+    /**
+     * Resumo de um autor para a página de perfil.
+     */
+    public record ResumoAutor(UUID idAutor, long qtdLivros, LocalDate dataUltimaPublicacao,
+                              BigDecimal menorPreco, BigDecimal maiorPreco) {
+    }
+
+    // Soma o delta na faixa; delta 0 apenas marca o autor para recálculo de datas e preços
+    private static final String REGISTRAR_DELTA = """
+            insert into autor_resumo_delta (id_autor, faixa, qtd_livros) values (?, ?, ?)
+            on conflict (id_autor, faixa) do update set qtd_livros = autor_resumo_delta.qtd_livros + excluded.qtd_livros
+            """;
+
+    // Consome um lote de deltas (skip locked: não espera pelas faixas que escritas em andamento estão usando),
+    // soma por autor e recalcula os agregados a partir dos livros do autor (índice livro_id_autor_idx, criado no autor_resumo.sql)
+    private static final String CONSOLIDAR = """
+            with removidos as (
+                delete from autor_resumo_delta
+                where ctid in (select ctid from autor_resumo_delta limit ? for update skip locked)
+                returning id_autor, qtd_livros
+            ), agregados as (
+                select id_autor, sum(qtd_livros) as qtd_livros from removidos group by id_autor
+            )
+            insert into autor_resumo (id_autor, qtd_livros, data_ultima_publicacao, menor_preco, maior_preco, atualizado_em)
+            select a.id_autor, a.qtd_livros, s.data_ultima_publicacao, s.menor_preco, s.maior_preco, now()
+            from agregados a
+            join autor on autor.id = a.id_autor
+            cross join lateral (
+                select max(l.data_publicacao) as data_ultima_publicacao, min(l.preco) as menor_preco, max(l.preco) as maior_preco
+                from livro l
+                where l.id_autor = a.id_autor
+            ) s
+            on conflict (id_autor) do update set
+                qtd_livros = autor_resumo.qtd_livros + excluded.qtd_livros,
+                data_ultima_publicacao = excluded.data_ultima_publicacao,
+                menor_preco = excluded.menor_preco,
+                maior_preco = excluded.maior_preco,
+                atualizado_em = excluded.atualizado_em
+            """;
+
+    private static final int LOTE_CONSOLIDACAO = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${libraryapi.autor-resumo.faixas:8}")
+    int faixas;
+    @Value("${libraryapi.autor-resumo.max-lotes:10}") // Lotes por execução do job; o restante fica para o próximo ciclo
+    int maxLotes;
+
+    public AutorResumoService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Registra a variação na quantidade de livros do autor (+1 inserção, -1 remoção, 0 só alteração de data/preço).
+     * Deve ser chamado dentro da transação que altera o livro.
+     */
+    public void registrarDelta(UUID idAutor, long qtdLivros) {
+        jdbcTemplate.update(REGISTRAR_DELTA, idAutor, faixaAleatoria(), qtdLivros);
+    }
+
+    /**
+     * Marca vários autores para recálculo de datas e preços (ex.: preços gravados em lote pelo PrecoWriteBehindService).
+     */
+    public void marcarAutores(Collection<UUID> idsAutores) {
+        List<Object[]> linhas = idsAutores.stream()
+                .distinct()
+                .map(id -> new Object[]{id, faixaAleatoria(), 0L})
+                .toList();
+        jdbcTemplate.batchUpdate(REGISTRAR_DELTA, linhas);
+    }
+
+    /**
+     * Marca todos os autores com livros para recálculo (ex.: atualização em massa da data de publicação).
+     */
+    public void marcarTodosAutores() {
+        jdbcTemplate.update("""
+                insert into autor_resumo_delta (id_autor, faixa, qtd_livros)
+                select distinct id_autor, ?, 0 from livro where id_autor is not null
+                on conflict (id_autor, faixa) do nothing
+                """, faixaAleatoria());
+    }
+
+    /**
+     * Apaga todos os livros de um gênero e registra os deltas no mesmo statement: os autores vêm das linhas
+     * efetivamente apagadas (returning), então um livro inserido ou trocado de autor por outra transação ao mesmo
+     * tempo nunca fica apagado sem o delta correspondente (nem com delta sem ter sido apagado).
+     * Retorna os ids apagados (para o feed de alterações).
+     */
+    public List<UUID> removerLivrosPorGenero(GeneroLivro genero) {
+        return jdbcTemplate.queryForList("""
+                with removidos as (
+                    delete from livro where genero = ? returning id, id_autor
+                ), deltas as (
+                    insert into autor_resumo_delta (id_autor, faixa, qtd_livros)
+                    select id_autor, ?, -count(*) from removidos where id_autor is not null group by id_autor
+                    on conflict (id_autor, faixa) do update set qtd_livros = autor_resumo_delta.qtd_livros + excluded.qtd_livros
+                )
+                select id from removidos
+                """, UUID.class, genero.name(), faixaAleatoria());
+    }
+
+    /**
+     * Registra a remoção de todos os livros de um gênero que está em uma partição exclusiva, antes do truncate.
+     * Quem chama deve travar a partição contra escritas (lock table ... in share row exclusive mode) antes, na mesma
+     * transação: assim nenhum livro entra, sai ou troca de autor entre a contagem e o truncate.
+     */
+    public void registrarRemocaoPorGenero(GeneroLivro genero) {
+        jdbcTemplate.update("""
+                insert into autor_resumo_delta (id_autor, faixa, qtd_livros)
+                select id_autor, ?, -count(*) from livro where genero = ? and id_autor is not null group by id_autor
+                on conflict (id_autor, faixa) do update set qtd_livros = autor_resumo_delta.qtd_livros + excluded.qtd_livros
+                """, faixaAleatoria(), genero.name());
+    }
+
+    /**
+     * Consolida os deltas pendentes em autor_resumo. Retorna quantos autores foram atualizados.
+     * Cada lote é uma transação própria: com escritas contínuas, uma única transação para tudo ficaria aberta
+     * indefinidamente segurando os locks das linhas de autor_resumo. No máximo maxLotes por execução.
+     */
+    @Scheduled(fixedDelayString = "${libraryapi.autor-resumo.intervalo-ms:1000}")
+    public int consolidar() {
+        int total = 0;
+        for (int lote = 0; lote < maxLotes; lote++) {
+            Integer atualizados = transactionTemplate.execute(status -> jdbcTemplate.update(CONSOLIDAR, LOTE_CONSOLIDACAO));
+            if (atualizados == null || atualizados == 0) {
+                break;
+            }
+            total += atualizados;
+        }
+        return total;
+    }
+
+    /**
+     * Resumo do autor. A quantidade de livros inclui os deltas ainda não consolidados.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ResumoAutor> buscarResumo(UUID idAutor) {
+        return jdbcTemplate.query("""
+                select a.id,
+                       coalesce(r.qtd_livros, 0) + coalesce((select sum(d.qtd_livros) from autor_resumo_delta d where d.id_autor = a.id), 0) as qtd_livros,
+                       r.data_ultima_publicacao, r.menor_preco, r.maior_preco
+                from autor a
+                left join autor_resumo r on r.id_autor = a.id
+                where a.id = ?
+                """, (rs, i) -> new ResumoAutor(rs.getObject("id", UUID.class), rs.getLong("qtd_livros"),
+                rs.getObject("data_ultima_publicacao", LocalDate.class), rs.getBigDecimal("menor_preco"),
+                rs.getBigDecimal("maior_preco")), idAutor).stream().findFirst();
+    }
+
+    /**
+     * Recalcula o resumo de todos os autores do zero (correção manual; a carga inicial, feita uma única vez pelo autor_resumo.sql, não se repete).
+     * Executar sem escritas concorrentes em livro: deltas gravados durante o recálculo seriam contados duas vezes.
+     */
+    @Transactional
+    public void reconstruir() {
+        jdbcTemplate.update("delete from autor_resumo_delta");
+        jdbcTemplate.update("""
+                insert into autor_resumo (id_autor, qtd_livros, data_ultima_publicacao, menor_preco, maior_preco, atualizado_em)
+                select a.id, count(l.id), max(l.data_publicacao), min(l.preco), max(l.preco), now()
+                from autor a
+                left join livro l on l.id_autor = a.id
+                group by a.id
+                on conflict (id_autor) do update set
+                    qtd_livros = excluded.qtd_livros,
+                    data_ultima_publicacao = excluded.data_ultima_publicacao,
+                    menor_preco = excluded.menor_preco,
+                    maior_preco = excluded.maior_preco,
+                    atualizado_em = excluded.atualizado_em
+                """);
+    }
+
+    private int faixaAleatoria() {
+        return ThreadLocalRandom.current().nextInt(faixas);
+    }
+}
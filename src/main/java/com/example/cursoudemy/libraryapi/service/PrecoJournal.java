@@ -0,0 +1,138 @@
+package com.example.cursoudemy.libraryapi.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Journal local (append-only) das atualizações de preço ainda não gravadas no banco.
+ * Cada atualização vira uma linha "id;preco" no arquivo corrente (precos-N.journal). A cada gravação em lote
+ * o arquivo é rotacionado; depois do commit no banco os arquivos rotacionados são apagados.
+ * Na inicialização os arquivos restantes são relidos em ordem, recuperando o que não chegou ao banco; uma última linha
+ * sem "\n" (queda no meio da escrita) é descartada.
+ */
+class PrecoJournal {
+
+    private static final String PREFIXO = "precos-";
+    private static final String SUFIXO = ".journal";
+
+    private final Path diretorio;
+    private final boolean sincronizar; // force() a cada escrita: sobrevive a queda de energia, mas é bem mais lento
+    private FileChannel canal;
+    private long numero; // Número do arquivo corrente
+
+    PrecoJournal(Path diretorio, boolean sincronizar) {
+        this.diretorio = diretorio;
+        this.sincronizar = sincronizar;
+    }
+
+    /**
+     * Relê os arquivos existentes para o mapa (a última atualização de cada livro vence) e abre um arquivo novo.
+     */
+    void recuperar(Map<UUID, BigDecimal> destino) {
+        try {
+            Files.createDirectories(diretorio);
+            for (Path arquivo : arquivos()) {
+                byte[] conteudo = Files.readAllBytes(arquivo);
+                // Só linhas completas, terminadas em "\n" (último byte de cada escrita). Um final sem "\n" é uma
+                // escrita interrompida: "...;19.90" cortado em "...;1" ainda tem duas partes e viraria o preço 1
+                int fim = conteudo.length;
+                while (fim > 0 && conteudo[fim - 1] != '\n') {
+                    fim--;
+                }
+                for (String linha : new String(conteudo, 0, fim, StandardCharsets.UTF_8).lines().toList()) {
+                    String[] partes = linha.split(";");
+                    destino.put(UUID.fromString(partes[0]), new BigDecimal(partes[1]));
+                }
+                numero = Math.max(numero, numeroDe(arquivo));
+            }
+            abrir(numero + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Chamado concorrentemente pelas threads que atualizam preços (FileChannel é seguro entre threads).
+     */
+    void registrar(UUID id, BigDecimal preco) {
+        ByteBuffer linha = ByteBuffer.wrap((id + ";" + preco.toPlainString() + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            while (linha.hasRemaining()) {
+                canal.write(linha);
+            }
+            if (sincronizar) {
+                canal.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Fecha o arquivo corrente e abre o próximo. Retorna o número do arquivo fechado, que só pode ser apagado
+     * (com os anteriores) depois que o lote correspondente for gravado no banco.
+     */
+    long rotacionar() {
+        try {
+            long fechado = numero;
+            canal.close();
+            abrir(numero + 1);
+            return fechado;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Apaga os arquivos até o número informado (inclusive): seus preços já estão no banco.
+     */
+    void descartarAte(long ultimo) {
+        try {
+            for (Path arquivo : arquivos()) {
+                if (numeroDe(arquivo) <= ultimo) {
+                    Files.deleteIfExists(arquivo);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void fechar() {
+        try {
+            canal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void abrir(long novoNumero) throws IOException {
+        numero = novoNumero;
+        canal = FileChannel.open(diretorio.resolve(PREFIXO + numero + SUFIXO),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> arquivos() throws IOException {
+        try (Stream<Path> lista = Files.list(diretorio)) {
+            return lista.filter(p -> p.getFileName().toString().startsWith(PREFIXO) && p.getFileName().toString().endsWith(SUFIXO))
+                    .sorted((a, b) -> Long.compare(numeroDe(a), numeroDe(b)))
+                    .toList();
+        }
+    }
+
+    private static long numeroDe(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        return Long.parseLong(nome.substring(PREFIXO.length(), nome.length() - SUFIXO.length()));
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.cursoudemy.libraryapi.service;
+
+import com.example.cursoudemy.libraryapi.cdc.FeedMudancas;
+import com.example.cursoudemy.libraryapi.cdc.MudancaCatalogo.Operacao;
+import com.example.cursoudemy.libraryapi.models.Livro;
+import com.example.cursoudemy.libraryapi.repository.LivroRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind das atualizações de preço dos livros.
+ * Os feeds de reprecificação mandam milhares de atualizações por segundo, muitas vezes para o mesmo livro.
+ * Em vez de findById + dirty checking para cada uma, as atualizações ficam em um mapa concorrente (a última de
+ * cada livro vence) e são gravadas periodicamente com um único UPDATE ... FROM unnest(ids, preços) por lote.
+ * - Leitura das próprias escritas: buscarPreco() consulta o buffer antes do banco.
+ * - Durabilidade configurável (libraryapi.preco.durabilidade): MEMORIA, JOURNAL ou JOURNAL_SYNC.
+ * Taxa de coalescência e tempo dos lotes podem ser consultados por JMX (libraryapi:name=precoWriteBehind).
+ */
+@Service
+@ManagedResource(objectName = "libraryapi:name=precoWriteBehind")
+public class PrecoWriteBehindService {
+
+    private static final Logger log = LoggerFactory.getLogger(PrecoWriteBehindService.class);
+
+    // Novos preços de um lote inteiro em dois arrays (ids e preços, mesma posição)
+    private static final String GRAVAR_PRECOS = """
+            update livro as l set preco = v.preco
+            from unnest(?::uuid[], ?::numeric[]) as v(id, preco)
+            where l.id = v.id
+            returning l.id, l.id_autor
+            """;
+
+    /**
+     * Quanto das atualizações pendentes sobrevive a uma queda da aplicação.
+     */
+    public enum Durabilidade {
+        MEMORIA,      // Só em memória: gravadas no banco no encerramento normal, perdidas em uma queda
+        JOURNAL,      // Também em um journal local: recuperadas após queda da aplicação (não do sistema operacional)
+        JOURNAL_SYNC  // Journal com force() a cada atualização: recuperadas até após queda de energia
+    }
+
+    /**
+     * Métricas do write-behind. taxaCoalescencia = atualizações recebidas / linhas gravadas no banco.
+     */
+    public record Metricas(long recebidas, long gravadas, double taxaCoalescencia, long lotes,
+                           double ultimoLoteMs, double maiorLoteMs, double mediaLoteMs, int pendentes) {
+    }
+
+    private final LivroRepository livroRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AutorResumoService autorResumoService;
+    private final ObjectProvider<FeedMudancas> feedMudancas; // Ausente com libraryapi.cdc.enabled=false
+
+    @Value("${libraryapi.preco.durabilidade:MEMORIA}")
+    Durabilidade durabilidade;
+    @Value("${libraryapi.preco.journal-dir:./data/precos}") // Diretório dos arquivos de journal
+    Path diretorioJournal;
+    @Value("${libraryapi.preco.tamanho-lote:500}") // Máximo de livros por UPDATE ... FROM unnest(...)
+    int tamanhoLote;
+
+    // Trava de leitura: várias threads registrando preços ao mesmo tempo
+    // Trava de escrita: troca do mapa pendente e rotação do journal, por um instante, no início de cada gravação
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+    private volatile ConcurrentHashMap<UUID, BigDecimal> pendentes = new ConcurrentHashMap<>();
+    private volatile Map<UUID, BigDecimal> emGravacao = Map.of(); // Lote sendo gravado, ainda visível para leitura
+    private PrecoJournal journal;
+
+    private final LongAdder recebidas = new LongAdder();
+    private final LongAdder gravadas = new LongAdder();
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder nanosLotes = new LongAdder();
+    private final AtomicLong ultimoLoteNanos = new AtomicLong();
+    private final AtomicLong maiorLoteNanos = new AtomicLong();
+
+    public PrecoWriteBehindService(LivroRepository livroRepository, JdbcTemplate jdbcTemplate,
+                                   TransactionTemplate transactionTemplate, AutorResumoService autorResumoService,
+                                   ObjectProvider<FeedMudancas> feedMudancas) {
+        this.livroRepository = livroRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.autorResumoService = autorResumoService;
+        this.feedMudancas = feedMudancas;
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (durabilidade != Durabilidade.MEMORIA) {
+            journal = new PrecoJournal(diretorioJournal, durabilidade == Durabilidade.JOURNAL_SYNC);
+            journal.recuperar(pendentes); // Atualizações de uma execução anterior que não chegaram ao banco
+            if (!pendentes.isEmpty()) {
+                log.info("{} atualizacoes de preco recuperadas do journal", pendentes.size());
+            }
+        }
+    }
+
+    /**
+     * Registra o novo preço de um livro. Não acessa o banco: a gravação acontece no próximo lote.
+     */
+    public void atualizarPreco(UUID idLivro, BigDecimal preco) {
+        trava.readLock().lock();
+        try {
+            if (journal != null) {
+                journal.registrar(idLivro, preco);
+            }
+            pendentes.put(idLivro, preco); // Coalescência: sobrescreve a atualização anterior do mesmo livro
+            recebidas.increment();
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Preço atual do livro, incluindo atualizações ainda não gravadas no banco (leitura das próprias escritas).
+     */
+    public Optional<BigDecimal> buscarPreco(UUID idLivro) {
+        // Ordem importa: pendentes é trocado depois de emGravacao, então quem vê o mapa novo também vê o lote em gravação
+        BigDecimal preco = pendentes.get(idLivro);
+        if (preco == null) {
+            preco = emGravacao.get(idLivro);
+        }
+        return preco != null ? Optional.of(preco) : livroRepository.findById(idLivro).map(Livro::getPreco);
+    }
+
+    /**
+     * Grava no banco todas as atualizações pendentes. Executado periodicamente e no encerramento da aplicação.
+     */
+    @Scheduled(fixedDelayString = "${libraryapi.preco.intervalo-ms:200}")
+    public synchronized void gravarPendentes() {
+        Map<UUID, BigDecimal> lote;
+        long journalFechado = -1;
+        trava.writeLock().lock();
+        try {
+            if (pendentes.isEmpty()) {
+                return;
+            }
+            lote = pendentes;
+            emGravacao = lote;
+            pendentes = new ConcurrentHashMap<>();
+            if (journal != null) {
+                journalFechado = journal.rotacionar(); // O arquivo fechado contém exatamente o que está no lote
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            // Uma transação para o lote inteiro: ou todos os preços chegam ao banco, ou o lote volta ao buffer
+            transactionTemplate.executeWithoutResult(status -> gravar(lote));
+            if (journal != null) {
+                journal.descartarAte(journalFechado);
+            }
+            registrarLote(lote.size(), System.nanoTime() - inicio);
+        } catch (RuntimeException e) {
+            // Devolve ao buffer sem sobrescrever preços mais novos recebidos durante a gravação
+            lote.forEach(pendentes::putIfAbsent);
+            log.error("Falha ao gravar {} precos pendentes; nova tentativa no proximo lote", lote.size(), e);
+        } finally {
+            emGravacao = Map.of();
+        }
+    }
+
+    private void gravar(Map<UUID, BigDecimal> lote) {
+        List<Map.Entry<UUID, BigDecimal>> itens = new ArrayList<>(lote.entrySet());
+        for (int inicio = 0; inicio < itens.size(); inicio += tamanhoLote) {
+            List<Map.Entry<UUID, BigDecimal>> parte = itens.subList(inicio, Math.min(itens.size(), inicio + tamanhoLote));
+
+            // Um único texto de SQL para qualquer tamanho de lote (os valores vão em dois arrays): o PostgreSQL e o
+            // driver reaproveitam o mesmo statement preparado, em vez de um "values (?, ?), ..." por tamanho
+            // returning l.id, l.id_autor   -> livros alterados (FeedMudancas) e autores cuja faixa de preço
+            //                                 precisa ser recalculada (AutorResumoService)
+            UUID[] ids = parte.stream().map(Map.Entry::getKey).toArray(UUID[]::new);
+            BigDecimal[] precos = parte.stream().map(Map.Entry::getValue).toArray(BigDecimal[]::new);
+            List<UUID> livros = new ArrayList<>();
+            List<UUID> autores = new ArrayList<>();
+            jdbcTemplate.query(conexao -> {
+                PreparedStatement statement = conexao.prepareStatement(GRAVAR_PRECOS);
+                statement.setArray(1, conexao.createArrayOf("uuid", ids));
+                statement.setArray(2, conexao.createArrayOf("numeric", precos));
+                return statement;
+            }, rs -> {
+                livros.add(rs.getObject(1, UUID.class));
+                autores.add(rs.getObject(2, UUID.class));
+            });
+            // Outbox depois do update: as linhas já estão travadas, o registro vai para o log no commit do lote
+            feedMudancas.ifAvailable(feed -> feed.registrar("Livro", Operacao.ALTERACAO, livros));
+            gravadas.add(autores.size());
+            autorResumoService.marcarAutores(autores.stream().filter(Objects::nonNull).toList());
+        }
+    }
+
+    private void registrarLote(int tamanho, long nanos) {
+        lotes.increment();
+        nanosLotes.add(nanos);
+        ultimoLoteNanos.set(nanos);
+        maiorLoteNanos.accumulateAndGet(nanos, Math::max);
+        log.debug("{} precos gravados em {} ms", tamanho, nanos / 1_000_000.0);
+    }
+
+    public Metricas metricas() {
+        long totalLotes = lotes.sum();
+        long totalGravadas = gravadas.sum();
+        return new Metricas(recebidas.sum(), totalGravadas,
+                totalGravadas == 0 ? 0 : (double) recebidas.sum() / totalGravadas,
+                totalLotes, ultimoLoteNanos.get() / 1_000_000.0, maiorLoteNanos.get() / 1_000_000.0,
+                totalLotes == 0 ? 0 : nanosLotes.sum() / 1_000_000.0 / totalLotes, pendentes.size());
+    }
+
+    @ManagedAttribute
+    public double getTaxaCoalescencia() {
+        return metricas().taxaCoalescencia();
+    }
+
+    @ManagedAttribute
+    public double getMediaLoteMs() {
+        return metricas().mediaLoteMs();
+    }
+
+    @ManagedAttribute
+    public int getPendentes() {
+        return pendentes.size();
+    }
+
+    /**
+     * Todas as métricas do write-behind (recebidas, gravadas, coalescência e tempo dos lotes).
+     */
+    @ManagedOperation
+    public String dump() {
+        return metricas().toString();
+    }
+
+    @PreDestroy
+    void encerrar() {
+        gravarPendentes(); // Encerramento normal: nada fica só em memória
+        if (journal != null) {
+            journal.fechar();
+        }
+        log.info("Write-behind de precos encerrado: {}", metricas());
+    }
+}
@@ -0,0 +1,50 @@
+-- Resumo desnormalizado por autor (quantidade de livros, última publicação e faixa de preço), mantido pelo AutorResumoService.
+-- Executado na inicialização (spring.sql.init), depois do Hibernate criar as tabelas; todos os comandos são idempotentes
+-- e, depois da primeira execução, nenhum deles lê a tabela livro.
+
+create table if not exists autor_resumo (
+	id_autor uuid not null primary key references autor(id) on delete cascade,
+	qtd_livros bigint not null default 0,
+	data_ultima_publicacao date,
+	menor_preco numeric(18,2),
+	maior_preco numeric(18,2),
+	atualizado_em timestamp not null default now()
+);
+
+-- Deltas ainda não consolidados. Cada autor tem várias faixas (linhas) para que escritas concorrentes no mesmo
+-- autor raramente disputem o mesmo lock de linha; o AutorResumoService soma e apaga os deltas periodicamente.
+-- Sem chave estrangeira: a verificação travaria a linha do autor em toda escrita.
+create table if not exists autor_resumo_delta (
+	id_autor uuid not null,
+	faixa smallint not null,
+	qtd_livros bigint not null default 0,
+	primary key (id_autor, faixa)
+);
+
+-- Consolidação, carga inicial e marcação de autores buscam os livros por autor: sem este índice seria uma leitura
+-- completa de livro por autor a cada ciclo. Mesmo nome usado pelos scripts de particionamento (já existindo, é mantido).
+create index if not exists livro_id_autor_idx on livro (id_autor);
+
+-- Carga inicial, uma única vez por banco: a linha em autor_resumo_carga_inicial marca que ela já foi feita.
+-- Sem a marca, cada inicialização agregaria a tabela livro inteira só para não inserir nada; com ela, o filtro
+-- "not exists" é avaliado uma vez (One-Time Filter) e a leitura de livro nem começa.
+-- Para recalcular depois disso (correção manual), usar AutorResumoService.reconstruir().
+create table if not exists autor_resumo_carga_inicial (
+	unica boolean not null primary key default true check (unica),
+	executada_em timestamp not null default now()
+);
+
+-- Autores que ainda não têm resumo (banco já existente antes do resumo). A quantidade desconta os deltas pendentes,
+-- que já estão refletidos em livro e continuam sendo somados na leitura e na consolidação. Duas instâncias subindo
+-- juntas podem executá-la ao mesmo tempo: autores que já têm resumo não são tocados (on conflict do nothing).
+insert into autor_resumo (id_autor, qtd_livros, data_ultima_publicacao, menor_preco, maior_preco)
+select a.id,
+       count(l.id) - coalesce((select sum(d.qtd_livros) from autor_resumo_delta d where d.id_autor = a.id), 0),
+       max(l.data_publicacao), min(l.preco), max(l.preco)
+from autor a
+left join livro l on l.id_autor = a.id
+where not exists (select 1 from autor_resumo_carga_inicial)
+group by a.id
+on conflict (id_autor) do nothing;
+
+insert into autor_resumo_carga_inicial default values on conflict do nothing;
@@ -0,0 +1,46 @@
+-- Alternativa: particionamento declarativo RANGE por data_publicacao (uma partição por década)
+-- - findByDataPublicacaoBetween lê apenas as décadas do intervalo (partition pruning)
+-- - Não permite o deleteByGenero por TRUNCATE de partição: nesse esquema ele continua sendo um DELETE comum
+-- Executar manualmente (psql/pgAdmin) com a aplicação parada, no lugar de livro_particionado_genero.sql.
+
+begin;
+
+alter table livro rename to livro_antigo;
+alter table livro_antigo rename constraint livro_pkey to livro_antigo_pkey;
+
+create table livro (
+	id uuid not null,
+	isbn varchar(20) not null,
+	titulo varchar(200) not null,
+	data_publicacao date,
+	genero varchar(100) not null,
+	preco numeric(18,2),
+	id_autor uuid references autor(id),
+	-- Como a coluna aceita null, a PK não pode incluí-la: a unicidade fica com o índice (id, data_publicacao)
+	constraint livro_id_data_key unique (id, data_publicacao)
+) partition by range (data_publicacao);
+
+-- Décadas de 1900 a 2090; datas fora do intervalo e nulas vão para a partição default
+do $$
+declare
+	decada int;
+begin
+	for decada in select generate_series(1900, 2090, 10) loop
+		execute format('create table livro_%s partition of livro for values from (%L) to (%L)',
+			decada, make_date(decada, 1, 1), make_date(decada + 10, 1, 1));
+	end loop;
+end $$;
+create table livro_outros partition of livro default;
+
+create index livro_isbn_idx on livro (isbn);
+create index livro_genero_idx on livro (genero);
+create index livro_id_autor_idx on livro (id_autor);
+
+insert into livro (id, isbn, titulo, data_publicacao, genero, preco, id_autor)
+select id, isbn, titulo, data_publicacao, genero, preco, id_autor from livro_antigo;
+
+drop table livro_antigo;
+
+analyze livro;
+
+commit;
@@ -0,0 +1,48 @@
+-- Migração da tabela livro para particionamento declarativo LIST por genero (PostgreSQL 11+)
+-- - findByGenero/deleteByGenero leem apenas a partição do gênero (partition pruning)
+-- - deleteByGenero de um gênero inteiro vira TRUNCATE da partição (ver LivroOperacoesEmLoteRepositoryImpl)
+-- Executar manualmente (psql/pgAdmin) com a aplicação parada; o Hibernate (ddl-auto) não cria tabelas particionadas.
+
+begin;
+
+alter table livro rename to livro_antigo;
+alter table livro_antigo rename constraint livro_pkey to livro_antigo_pkey;
+
+create table livro (
+	id uuid not null,
+	isbn varchar(20) not null,
+	titulo varchar(200) not null,
+	data_publicacao date,
+	genero varchar(100) not null,
+	preco numeric(18,2),
+	id_autor uuid references autor(id),
+	-- A chave de partição precisa fazer parte da chave primária; o id (UUID) continua único na prática
+	constraint livro_pkey primary key (id, genero)
+) partition by list (genero);
+
+-- Uma partição por valor do enum GeneroLivro (os nomes gravados pelo @Enumerated(EnumType.STRING))
+create table livro_ficcao partition of livro for values in ('FICCAO');
+create table livro_fantasia partition of livro for values in ('FANTASIA');
+create table livro_misterio partition of livro for values in ('MISTERIO');
+create table livro_romance partition of livro for values in ('ROMANCE');
+create table livro_biografia partition of livro for values in ('BIOGRAFIA');
+create table livro_ciencia partition of livro for values in ('CIÊNCIA');
+-- Gêneros novos no enum caem aqui até ganharem partição própria
+create table livro_outros partition of livro default;
+
+-- Índices particionados: criados automaticamente em cada partição
+create index livro_isbn_idx on livro (isbn);
+create index livro_data_publicacao_idx on livro (data_publicacao);
+create index livro_id_autor_idx on livro (id_autor);
+
+insert into livro (id, isbn, titulo, data_publicacao, genero, preco, id_autor)
+select id, isbn, titulo, data_publicacao, genero, preco, id_autor from livro_antigo;
+
+drop table livro_antigo;
+
+analyze livro;
+
+commit;
+
+-- Conferir a distribuição por partição:
+-- select tableoid::regclass as particao, count(*) from livro group by 1 order by 1;
@@ -0,0 +1,11 @@
+-- Outbox do feed de alterações do catálogo (FeedMudancas): cada alteração é gravada aqui na mesma transação que
+-- alterou livro/autor e depois transferida, em ordem de id, para o log local mapeado em memória.
+-- Executado na inicialização (spring.sql.init); idempotente.
+
+create table if not exists mudanca_catalogo_outbox (
+	id bigint generated always as identity primary key,
+	entidade varchar(50) not null,
+	operacao varchar(30) not null,
+	chave varchar(200) not null,
+	criado_em timestamp not null default now()
+);
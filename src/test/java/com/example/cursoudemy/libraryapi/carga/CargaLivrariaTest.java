@@ -0,0 +1,159 @@
+package com.example.cursoudemy.libraryapi.carga;
+
+import com.example.cursoudemy.libraryapi.models.Autor;
+import com.example.cursoudemy.libraryapi.models.Livro;
+import com.example.cursoudemy.libraryapi.repository.AutorRepository;
+import com.example.cursoudemy.libraryapi.repository.LivroRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Teste de carga da livraria contra um PostgreSQL em container (Testcontainers), independente do banco local.
+ * Popula um catálogo sintético e executa, a partir de N workers concorrentes, um mix de leituras
+ * (findByIsbn, findByGenero, findByDataPublicacaoBetween) e escritas (atualização de preço e transações
+ * no estilo do TransacaoService), reportando vazão, percentis de latência e saturação do pool de conexões.
+ *
+ * Executar com: mvn -Pcarga test
+ * Parâmetros (-D): carga.autores, carga.livros, carga.workers, carga.aquecimento (s), carga.duracao (s), carga.pool
+ */
+@Tag("carga") // Fora do mvn test padrão (ver perfil "carga" no pom.xml)
+@Testcontainers
+@SpringBootTest(properties = {
+        "libraryapi.sql-log.sample-rate=0", // Sob carga, o log de SQL só agrega estatísticas
+        "spring.datasource.hikari.maximum-pool-size=${carga.pool:10}",
+        "libraryapi.cdc.drenar=true" // A transferência do outbox do feed faz parte da carga medida
+})
+public class CargaLivrariaTest {
+
+    @Container
+    @ServiceConnection // Substitui a URL/usuário/senha do application.yml pelos do container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.3");
+
+    private static final int AUTORES = Integer.getInteger("carga.autores", 1_000);
+    private static final int LIVROS = Integer.getInteger("carga.livros", 50_000);
+    private static final int WORKERS = Integer.getInteger("carga.workers", 16);
+    private static final int AQUECIMENTO_SEGUNDOS = Integer.getInteger("carga.aquecimento", 5);
+    private static final int DURACAO_SEGUNDOS = Integer.getInteger("carga.duracao", 30);
+
+    @Autowired
+    LivroRepository livroRepository;
+
+    @Autowired
+    AutorRepository autorRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    DataSource dataSource;
+
+    private volatile boolean executando = true;
+    private volatile boolean medindo = false; // Durante o aquecimento as operações rodam mas não são medidas
+
+    @Test
+    void mixDeTrafegoTest() throws Exception {
+        CatalogoSintetico catalogo = new CatalogoSintetico();
+        catalogo.popular(jdbcTemplate, AUTORES, LIVROS);
+        System.out.printf("Catalogo: %d autores, %d livros; %d workers%n", AUTORES, LIVROS, WORKERS);
+
+        MetricasCarga metricas = new MetricasCarga();
+        HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+
+        ScheduledExecutorService amostrador = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService workers = Executors.newFixedThreadPool(WORKERS);
+        for (int i = 0; i < WORKERS; i++) {
+            MetricasCarga.Registro registro = metricas.novoRegistro();
+            workers.submit(() -> executarWorker(catalogo, registro));
+        }
+
+        TimeUnit.SECONDS.sleep(AQUECIMENTO_SEGUNDOS);
+        medindo = true;
+        amostrador.scheduleAtFixedRate(() -> metricas.amostrarPool(hikari.getHikariPoolMXBean()), 0, 50, TimeUnit.MILLISECONDS);
+        long inicio = System.nanoTime();
+
+        TimeUnit.SECONDS.sleep(DURACAO_SEGUNDOS);
+        medindo = false;
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+        executando = false;
+        amostrador.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+
+        System.out.println(metricas.relatorio(segundos, hikari.getMaximumPoolSize()));
+        assertEquals(0, metricas.totalErros());
+    }
+
+    private void executarWorker(CatalogoSintetico catalogo, MetricasCarga.Registro registro) {
+        int pesoTotal = OperacaoCarga.pesoTotal();
+        while (executando) {
+            OperacaoCarga operacao = OperacaoCarga.sortear(ThreadLocalRandom.current().nextInt(pesoTotal));
+            long inicio = System.nanoTime();
+            try {
+                executar(operacao, catalogo);
+                if (medindo) {
+                    registro.sucesso(operacao, System.nanoTime() - inicio);
+                }
+            } catch (RuntimeException e) {
+                if (medindo) {
+                    registro.erro(operacao);
+                }
+            }
+        }
+    }
+
+    private void executar(OperacaoCarga operacao, CatalogoSintetico catalogo) {
+        switch (operacao) {
+            case BUSCA_ISBN -> livroRepository.findByIsbn(catalogo.isbnAleatorio());
+            case BUSCA_GENERO -> livroRepository.findByGenero(catalogo.generoAleatorio());
+            case BUSCA_PERIODO -> {
+                LocalDate inicio = catalogo.dataAleatoria();
+                livroRepository.findByDataPublicacaoBetween(inicio, inicio.plusYears(1));
+            }
+            case ATUALIZA_PRECO -> transactionTemplate.executeWithoutResult(status -> {
+                // Entidade managed: a alteração é persistida no commit sem chamar save()
+                livroRepository.findById(catalogo.livroAleatorio())
+                        .ifPresent(livro -> livro.setPreco(BigDecimal.valueOf(ThreadLocalRandom.current().nextInt(1_000, 21_000), 2)));
+            });
+            case TRANSACAO -> transactionTemplate.executeWithoutResult(status -> {
+                Autor autor = new Autor();
+                autor.setNome("Autor carga");
+                autor.setNacionalidade("Brasileiro");
+                autor.setDataNascimento(LocalDate.of(1980, 1, 1));
+                autorRepository.save(autor);
+
+                Livro livro = new Livro();
+                livro.setIsbn("979-" + UUID.randomUUID().toString().substring(0, 15));
+                livro.setTitulo("Livro carga");
+                livro.setPreco(BigDecimal.valueOf(50));
+                livro.setGenero(catalogo.generoAleatorio());
+                livro.setDataPublicacao(catalogo.dataAleatoria());
+                livro.setAutor(autor);
+                livroRepository.save(livro);
+            });
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.cursoudemy.libraryapi.carga;
+
+import com.example.cursoudemy.libraryapi.models.GeneroLivro;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Catálogo sintético para o teste de carga: insere autores e livros em lote via JDBC (bem mais rápido que saveAll
+ * para centenas de milhares de linhas) e guarda IDs e ISBNs em memória para os workers sortearem alvos reais.
+ */
+class CatalogoSintetico {
+
+    static final LocalDate PRIMEIRA_PUBLICACAO = LocalDate.of(1950, 1, 1);
+    static final int DIAS_DE_PUBLICACAO = 365 * 75; // Publicações entre 1950 e ~2025
+
+    private static final int TAMANHO_LOTE = 1_000;
+    private static final GeneroLivro[] GENEROS = GeneroLivro.values();
+
+    private final List<UUID> autores = new ArrayList<>();
+    private final List<UUID> livros = new ArrayList<>();
+    private final List<String> isbns = new ArrayList<>();
+
+    /**
+     * Popula o banco com a quantidade pedida de autores e livros. A semente fixa torna o catálogo reproduzível.
+     */
+    void popular(JdbcTemplate jdbc, int quantidadeAutores, int quantidadeLivros) {
+        Random random = new Random(42);
+
+        List<Object[]> linhasAutor = new ArrayList<>();
+        for (int i = 0; i < quantidadeAutores; i++) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            autores.add(id);
+            linhasAutor.add(new Object[]{id, "Autor " + i, Date.valueOf(LocalDate.of(1900 + random.nextInt(100), 1, 1)),
+                    random.nextBoolean() ? "Brasileiro" : "Britânico"});
+        }
+        jdbc.batchUpdate("insert into autor (id, nome, data_nascimento, nacionalidade) values (?, ?, ?, ?)", linhasAutor);
+
+        List<Object[]> lote = new ArrayList<>(TAMANHO_LOTE);
+        for (int i = 0; i < quantidadeLivros; i++) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            String isbn = String.format("978-%02d-%09d", i % 100, i);
+            livros.add(id);
+            isbns.add(isbn);
+            lote.add(new Object[]{id, isbn, "Livro " + i,
+                    Date.valueOf(PRIMEIRA_PUBLICACAO.plusDays(random.nextInt(DIAS_DE_PUBLICACAO))),
+                    GENEROS[random.nextInt(GENEROS.length)].name(),
+                    BigDecimal.valueOf(1_000 + random.nextInt(20_000), 2),
+                    autores.get(random.nextInt(autores.size()))});
+            if (lote.size() == TAMANHO_LOTE || i == quantidadeLivros - 1) {
+                jdbc.batchUpdate("insert into livro (id, isbn, titulo, data_publicacao, genero, preco, id_autor) values (?, ?, ?, ?, ?, ?, ?)", lote);
+                lote.clear();
+            }
+        }
+        jdbc.execute("analyze autor");
+        jdbc.execute("analyze livro"); // Estatísticas atualizadas para o planner escolher os planos de produção
+    }
+
+    UUID autorAleatorio() {
+        return autores.get(ThreadLocalRandom.current().nextInt(autores.size()));
+    }
+
+    UUID livroAleatorio() {
+        return livros.get(ThreadLocalRandom.current().nextInt(livros.size()));
+    }
+
+    String isbnAleatorio() {
+        return isbns.get(ThreadLocalRandom.current().nextInt(isbns.size()));
+    }
+
+    GeneroLivro generoAleatorio() {
+        return GENEROS[ThreadLocalRandom.current().nextInt(GENEROS.length)];
+    }
+
+    LocalDate dataAleatoria() {
+        return PRIMEIRA_PUBLICACAO.plusDays(ThreadLocalRandom.current().nextInt(DIAS_DE_PUBLICACAO));
+    }
+}
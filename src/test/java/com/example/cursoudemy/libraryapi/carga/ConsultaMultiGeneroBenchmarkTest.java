@@ -0,0 +1,132 @@
+package com.example.cursoudemy.libraryapi.carga;
+
+import com.example.cursoudemy.libraryapi.logging.SqlLogPipeline;
+import com.example.cursoudemy.libraryapi.models.GeneroLivro;
+import com.example.cursoudemy.libraryapi.models.Livro;
+import com.example.cursoudemy.libraryapi.repository.LivroRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark das consultas com vários gêneros/ISBNs: um findByGenero por gênero (laço), IN com lista completada
+ * (findByGeneroIn) e array em um único parâmetro (findByGeneros / findByIsbnAny).
+ * Para cada estratégia reporta latência, taxa de acerto do cache de planos do Hibernate (n/a para SQL nativo, que
+ * não passa por ele; as consultas JPQL do repositório passam) e quantos SQLs distintos
+ * chegaram ao banco (cada SQL distinto é um plano separado no cache de statements do PostgreSQL).
+ *
+ * Executar com: mvn -Pcarga test -Dtest=ConsultaMultiGeneroBenchmarkTest
+ */
+@Tag("carga")
+@Testcontainers
+@SpringBootTest(properties = {
+        "libraryapi.sql-log.sample-rate=0", // Só as estatísticas por formato de statement
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class ConsultaMultiGeneroBenchmarkTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.3");
+
+    private static final int LIVROS = Integer.getInteger("carga.livros", 50_000);
+    private static final int REPETICOES = Integer.getInteger("carga.repeticoes", 2_000);
+    private static final GeneroLivro[] GENEROS = GeneroLivro.values();
+
+    @Autowired
+    LivroRepository livroRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    SqlLogPipeline sqlLogPipeline;
+
+    @Test
+    void generosEIsbnsTest() {
+        CatalogoSintetico catalogo = new CatalogoSintetico();
+        catalogo.popular(jdbcTemplate, 500, LIVROS);
+        Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        System.out.printf("%-22s %10s %10s %10s %14s %12s%n", "estrategia", "media(ms)", "p50(ms)", "p95(ms)", "cache planos", "SQLs distintos");
+        medir("generos: laco", estatisticas, () -> {
+            List<Livro> resultado = new ArrayList<>();
+            for (GeneroLivro genero : generosAleatorios()) {
+                resultado.addAll(livroRepository.findByGenero(genero)); // Uma consulta por gênero, juntadas em Java
+            }
+            return resultado;
+        });
+        medir("generos: in completado", estatisticas, () -> livroRepository.findByGeneroIn(generosAleatorios()));
+        medir("generos: any(array)", estatisticas, () -> livroRepository.findByGeneros(generosAleatorios()));
+        medir("isbns: laco", estatisticas, () -> {
+            List<Livro> resultado = new ArrayList<>();
+            for (String isbn : isbnsAleatorios(catalogo)) {
+                resultado.addAll(livroRepository.findByIsbn(isbn));
+            }
+            return resultado;
+        });
+        medir("isbns: any(array)", estatisticas, () -> livroRepository.findByIsbnAny(isbnsAleatorios(catalogo)));
+    }
+
+    private void medir(String nome, Statistics estatisticas, Supplier<List<Livro>> consulta) {
+        for (int i = 0; i < REPETICOES / 10; i++) {
+            consulta.get(); // Aquecimento: JIT, cache de planos e statements preparados no servidor
+        }
+        estatisticas.clear();
+        sqlLogPipeline.limparEstatisticas();
+
+        long[] latencias = new long[REPETICOES];
+        for (int i = 0; i < REPETICOES; i++) {
+            long inicio = System.nanoTime();
+            consulta.get();
+            latencias[i] = System.nanoTime() - inicio;
+        }
+        Arrays.sort(latencias);
+
+        long acertos = estatisticas.getQueryPlanCacheHitCount();
+        long total = acertos + estatisticas.getQueryPlanCacheMissCount();
+        long sqlsDistintos = sqlLogPipeline.estatisticas().keySet().stream().filter(sql -> sql.contains("from livro")).count();
+        // SQL nativo não passa pelo cache de planos do Hibernate: sem consultas a ele, não há taxa a mostrar
+        String cachePlanos = total == 0 ? "n/a" : String.format(Locale.ROOT, "%.1f%%", 100.0 * acertos / total);
+        System.out.printf(Locale.ROOT, "%-22s %10.3f %10.3f %10.3f %14s %12d%n", nome,
+                Arrays.stream(latencias).average().orElse(0) / 1_000_000.0,
+                latencias[latencias.length / 2] / 1_000_000.0,
+                latencias[(int) (latencias.length * 0.95)] / 1_000_000.0,
+                cachePlanos,
+                sqlsDistintos);
+    }
+
+    private static List<GeneroLivro> generosAleatorios() {
+        List<GeneroLivro> generos = new ArrayList<>(List.of(GENEROS));
+        Collections.shuffle(generos, ThreadLocalRandom.current());
+        return generos.subList(0, 1 + ThreadLocalRandom.current().nextInt(GENEROS.length)); // De 1 a todos os gêneros
+    }
+
+    private static String[] isbnsAleatorios(CatalogoSintetico catalogo) {
+        String[] isbns = new String[1 + ThreadLocalRandom.current().nextInt(50)]; // De 1 a 50 ISBNs
+        for (int i = 0; i < isbns.length; i++) {
+            isbns[i] = catalogo.isbnAleatorio();
+        }
+        return isbns;
+    }
+}
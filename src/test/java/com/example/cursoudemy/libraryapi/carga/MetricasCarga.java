@@ -0,0 +1,113 @@
+package com.example.cursoudemy.libraryapi.carga;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas do teste de carga: latências por operação (percentis exatos a partir de todas as amostras),
+ * erros, vazão e saturação do pool de conexões HikariCP.
+ * Cada worker grava em seu próprio Registro (sem contenção); os registros só são juntados no relatório.
+ */
+class MetricasCarga {
+
+    private final List<Registro> registros = new CopyOnWriteArrayList<>();
+
+    // Saturação do pool, amostrada periodicamente
+    private final LongAdder amostrasPool = new LongAdder();
+    private final LongAdder amostrasComEspera = new LongAdder();
+    private final AtomicInteger maximoAtivas = new AtomicInteger();
+    private final AtomicInteger maximoAguardando = new AtomicInteger();
+
+    Registro novoRegistro() {
+        Registro registro = new Registro();
+        registros.add(registro);
+        return registro;
+    }
+
+    void amostrarPool(HikariPoolMXBean pool) {
+        amostrasPool.increment();
+        int aguardando = pool.getThreadsAwaitingConnection();
+        if (aguardando > 0) {
+            amostrasComEspera.increment();
+        }
+        maximoAtivas.accumulateAndGet(pool.getActiveConnections(), Math::max);
+        maximoAguardando.accumulateAndGet(aguardando, Math::max);
+    }
+
+    String relatorio(double segundos, int tamanhoPool) {
+        StringBuilder sb = new StringBuilder(String.format("%-16s %10s %10s %9s %9s %9s %9s %7s%n",
+                "operacao", "total", "ops/s", "p50(ms)", "p95(ms)", "p99(ms)", "max(ms)", "erros"));
+        long totalGeral = 0;
+        for (OperacaoCarga operacao : OperacaoCarga.values()) {
+            long[] latencias = registros.stream()
+                    .map(r -> r.latencias.get(operacao))
+                    .flatMapToLong(l -> Arrays.stream(l.valores, 0, l.tamanho))
+                    .sorted()
+                    .toArray();
+            long erros = registros.stream().mapToLong(r -> r.erros.get(operacao).sum()).sum();
+            totalGeral += latencias.length;
+            sb.append(String.format("%-16s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %7d%n", operacao, latencias.length,
+                    latencias.length / segundos, percentil(latencias, 50), percentil(latencias, 95),
+                    percentil(latencias, 99), percentil(latencias, 100), erros));
+        }
+        sb.append(String.format("vazao total: %.1f ops/s%n", totalGeral / segundos));
+        sb.append(String.format("pool: tamanho=%d maximo ativas=%d maximo aguardando=%d amostras com espera=%.1f%%",
+                tamanhoPool, maximoAtivas.get(), maximoAguardando.get(),
+                100.0 * amostrasComEspera.sum() / Math.max(1, amostrasPool.sum())));
+        return sb.toString();
+    }
+
+    long totalErros() {
+        return registros.stream().flatMap(r -> r.erros.values().stream()).mapToLong(LongAdder::sum).sum();
+    }
+
+    private static double percentil(long[] ordenados, int percentil) {
+        if (ordenados.length == 0) {
+            return 0;
+        }
+        int indice = (int) Math.ceil(percentil / 100.0 * ordenados.length) - 1;
+        return ordenados[Math.max(0, indice)] / 1_000_000.0; // nanos -> ms
+    }
+
+    /**
+     * Registro de um único worker: latências em nanos por operação.
+     */
+    static class Registro {
+        private final Map<OperacaoCarga, ListaLongs> latencias = new EnumMap<>(OperacaoCarga.class);
+        private final Map<OperacaoCarga, LongAdder> erros = new EnumMap<>(OperacaoCarga.class);
+
+        Registro() {
+            for (OperacaoCarga operacao : OperacaoCarga.values()) {
+                latencias.put(operacao, new ListaLongs());
+                erros.put(operacao, new LongAdder());
+            }
+        }
+
+        void sucesso(OperacaoCarga operacao, long nanos) {
+            latencias.get(operacao).adicionar(nanos);
+        }
+
+        void erro(OperacaoCarga operacao) {
+            erros.get(operacao).increment();
+        }
+    }
+
+    private static class ListaLongs {
+        private long[] valores = new long[1024];
+        private int tamanho;
+
+        void adicionar(long valor) {
+            if (tamanho == valores.length) {
+                valores = Arrays.copyOf(valores, tamanho * 2);
+            }
+            valores[tamanho++] = valor;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.cursoudemy.libraryapi.carga;
+
+/**
+ * Operações do mix de tráfego da livraria e seus pesos relativos (porcentagem aproximada das requisições).
+ */
+enum OperacaoCarga {
+    BUSCA_ISBN(40),       // findByIsbn: consulta pontual, a mais comum
+    BUSCA_GENERO(5),      // findByGenero: varre todos os livros de um gênero
+    BUSCA_PERIODO(15),    // findByDataPublicacaoBetween: janela de um ano
+    ATUALIZA_PRECO(30),   // findById + alteração do preço em entidade managed (dirty checking)
+    TRANSACAO(10);        // Novo autor + novo livro na mesma transação, no estilo do TransacaoService
+
+    final int peso;
+
+    OperacaoCarga(int peso) {
+        this.peso = peso;
+    }
+
+    /**
+     * Sorteia uma operação respeitando os pesos.
+     */
+    static OperacaoCarga sortear(int sorteio) { // sorteio entre 0 e pesoTotal() - 1
+        for (OperacaoCarga operacao : values()) {
+            if (sorteio < operacao.peso) {
+                return operacao;
+            }
+            sorteio -= operacao.peso;
+        }
+        return BUSCA_ISBN;
+    }
+
+    static int pesoTotal() {
+        int total = 0;
+        for (OperacaoCarga operacao : values()) {
+            total += operacao.peso;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.cursoudemy.libraryapi.cdc;
+
+import com.example.cursoudemy.libraryapi.cdc.MudancaCatalogo.Operacao;
+import com.example.cursoudemy.libraryapi.models.GeneroLivro;
+import com.example.cursoudemy.libraryapi.models.Livro;
+import com.example.cursoudemy.libraryapi.repository.LivroRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testes do FeedMudancas com o banco: alterações feitas pelo JPA passam pelo outbox e chegam ao log só depois do
+ * commit, na ordem de commit, e nada é gravado quando a transação é desfeita.
+ * Só este contexto drena o outbox, e a transferência automática fica desligada: cada teste chama transferirPendentes().
+ */
+@SpringBootTest(properties = {
+        "libraryapi.cdc.diretorio=target/mudancas-teste",
+        "libraryapi.cdc.drenar=true",
+        "libraryapi.cdc.intervalo-ms=3600000"
+})
+public class FeedMudancasTest {
+
+    @Autowired
+    FeedMudancas feed;
+
+    @Autowired
+    LivroRepository livroRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DataSource dataSource;
+
+    private static Livro novoLivro() {
+        Livro livro = new Livro();
+        livro.setIsbn("978-22-22222-22-2");
+        livro.setTitulo("Livro do feed");
+        livro.setPreco(BigDecimal.valueOf(50));
+        livro.setGenero(GeneroLivro.MISTERIO);
+        livro.setDataPublicacao(LocalDate.of(2015, 3, 1));
+        return livro;
+    }
+
+    @BeforeEach
+    void transferirSobras() {
+        feed.transferirPendentes(); // Registros deixados no outbox por outros testes
+    }
+
+    private List<MudancaCatalogo> lerDesde(long sequencia) {
+        feed.transferirPendentes();
+        List<MudancaCatalogo> lidas = new ArrayList<>();
+        ConsumidorMudancas consumidor = feed.consumidor("teste-" + UUID.randomUUID());
+        while (consumidor.ler(1000, r -> {
+            if (r.sequencia() > sequencia) {
+                lidas.add(r.mudanca());
+            }
+        }) > 0) {
+            // Lê até alcançar o fim do log
+        }
+        return lidas;
+    }
+
+    @Test
+    void alteracoesDepoisDoCommitTest() {
+        long antes = feed.getUltimaSequencia();
+
+        Livro livro = transactionTemplate.execute(status -> {
+            Livro salvo = livroRepository.save(novoLivro());
+            livroRepository.flush(); // Callback @PostPersist já gravou no outbox...
+            assertEquals(0, feed.transferirPendentes()); // ...mas a transferência não enxerga o que não teve commit
+            assertEquals(antes, feed.getUltimaSequencia());
+            return salvo;
+        });
+        String id = livro.getId().toString();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Livro managed = livroRepository.findById(livro.getId()).orElseThrow();
+            managed.setTitulo("Livro do feed (2a edicao)");
+        });
+        livroRepository.deleteById(livro.getId());
+
+        assertEquals(List.of(
+                new MudancaCatalogo("Livro", Operacao.INSERCAO, id),
+                new MudancaCatalogo("Livro", Operacao.ALTERACAO, id),
+                new MudancaCatalogo("Livro", Operacao.REMOCAO, id)), lerDesde(antes));
+    }
+
+    @Test
+    void rollbackNaoGravaTest() {
+        long antes = feed.getUltimaSequencia();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            livroRepository.save(novoLivro());
+            livroRepository.flush();
+            status.setRollbackOnly();
+        });
+
+        assertTrue(lerDesde(antes).isEmpty());
+        assertEquals(antes, feed.getUltimaSequencia());
+    }
+
+    /**
+     * Update em massa: um registro ALTERACAO por livro alterado.
+     */
+    @Test
+    void operacaoEmMassaTest() {
+        livroRepository.save(novoLivro());
+        feed.transferirPendentes();
+        long antes = feed.getUltimaSequencia();
+
+        livroRepository.atualizarDataDePublicacaoDeLivros(LocalDate.of(2020, 1, 1));
+
+        Set<String> livros = new HashSet<>(jdbcTemplate.queryForList("select id::text from livro", String.class));
+        List<MudancaCatalogo> lidas = lerDesde(antes);
+        assertEquals(livros.size(), lidas.size());
+        assertEquals(livros, lidas.stream().map(MudancaCatalogo::chave).collect(Collectors.toSet()));
+        assertTrue(lidas.stream().allMatch(m -> m.operacao() == Operacao.ALTERACAO));
+        assertTrue(feed.metricas().registros() > 0);
+        assertEquals(0, feed.metricas().pendentes());
+    }
+
+    /**
+     * Livro inserido por uma transação que confirma depois de deleteByGenero começar: quem aplica o feed em ordem
+     * tem de terminar com o mesmo estado do banco. Sem partição (delete comum) o livro sobrevive e o feed não pode
+     * apagá-lo; com partição (truncate) a remoção espera o commit e o livro sai junto com o gênero.
+     */
+    @Test
+    void remocaoPorGeneroConcorrenteTest() throws Exception {
+        long antes = feed.getUltimaSequencia();
+        Livro existente = novoLivro();
+        existente.setGenero(GeneroLivro.BIOGRAFIA);
+        livroRepository.save(existente);
+
+        CompletableFuture<Void> remocao = new CompletableFuture<>();
+        Livro inserido = transactionTemplate.execute(status -> {
+            Livro novo = novoLivro();
+            novo.setGenero(GeneroLivro.BIOGRAFIA);
+            livroRepository.saveAndFlush(novo); // Id do outbox já alocado, ainda sem commit
+            CompletableFuture.runAsync(() -> livroRepository.deleteByGenero(GeneroLivro.BIOGRAFIA))
+                    .whenComplete((r, erro) -> {
+                        if (erro != null) {
+                            remocao.completeExceptionally(erro);
+                        } else {
+                            remocao.complete(null);
+                        }
+                    });
+            dormir(300);
+            return novo;
+        });
+        remocao.get();
+
+        String id = inserido.getId().toString();
+        boolean existeNoFeed = false;
+        for (MudancaCatalogo mudanca : lerDesde(antes)) {
+            if (mudanca.chave().equals(id)) {
+                existeNoFeed = mudanca.operacao() != Operacao.REMOCAO;
+            } else if (mudanca.operacao() == Operacao.REMOCAO_EM_MASSA && mudanca.chave().equals("genero=BIOGRAFIA")) {
+                existeNoFeed = false;
+            }
+        }
+        assertEquals(livroRepository.existsById(inserido.getId()), existeNoFeed);
+        assertFalse(livroRepository.existsById(existente.getId()));
+    }
+
+    /**
+     * Duas transações na mesma linha: a segunda espera o lock da primeira e faz commit depois dela. Mesmo que a
+     * primeira demore a sair do commit (afterCommit lento), o feed tem de trazer a alteração antes da remoção.
+     */
+    @Test
+    void ordemDeCommitComTransacoesConcorrentesTest() throws Exception {
+        long antes = feed.getUltimaSequencia();
+        Livro livro = livroRepository.save(novoLivro());
+        String id = livro.getId().toString();
+
+        CompletableFuture<Void> remocao = new CompletableFuture<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dormir(500); // Commit feito, thread ainda ocupada: a remoção termina antes daqui
+                }
+            });
+            Livro managed = livroRepository.findById(livro.getId()).orElseThrow();
+            managed.setTitulo("Livro do feed (alterado)");
+            livroRepository.flush(); // Linha travada até o commit
+
+            CompletableFuture.runAsync(() -> livroRepository.deleteById(livro.getId())) // Espera o lock
+                    .whenComplete((r, erro) -> {
+                        if (erro != null) {
+                            remocao.completeExceptionally(erro);
+                        } else {
+                            remocao.complete(null);
+                        }
+                    });
+            dormir(300);
+        });
+        remocao.get();
+
+        List<MudancaCatalogo> lidas = lerDesde(antes);
+        assertEquals(List.of(
+                new MudancaCatalogo("Livro", Operacao.INSERCAO, id),
+                new MudancaCatalogo("Livro", Operacao.ALTERACAO, id),
+                new MudancaCatalogo("Livro", Operacao.REMOCAO, id)), lidas);
+    }
+
+    /**
+     * Outra instância drenando (advisory lock ocupado): esta não transfere nada e o outbox fica intacto para a outra.
+     */
+    @Test
+    void umaTransferenciaPorVezTest() throws Exception {
+        long antes = feed.getUltimaSequencia();
+        livroRepository.save(novoLivro());
+
+        try (Connection outraInstancia = dataSource.getConnection(); Statement comando = outraInstancia.createStatement()) {
+            comando.execute("select pg_advisory_lock(hashtext('mudanca_catalogo_outbox'))");
+            assertEquals(0, feed.transferirPendentes());
+            assertEquals(antes, feed.getUltimaSequencia());
+            assertTrue(jdbcTemplate.queryForObject("select count(*) from mudanca_catalogo_outbox", Long.class) > 0);
+            comando.execute("select pg_advisory_unlock(hashtext('mudanca_catalogo_outbox'))");
+        }
+
+        assertTrue(feed.transferirPendentes() > 0);
+        assertTrue(feed.getUltimaSequencia() > antes);
+    }
+
+    private static void dormir(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.cursoudemy.libraryapi.cdc;
+
+import com.example.cursoudemy.libraryapi.cdc.MudancaCatalogo.Operacao;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testes do log de alterações mapeado em memória e dos consumidores (sem banco de dados).
+ * Validam a ordem das sequências, a troca de segmento, a reabertura do log e a retomada pelo offset.
+ */
+class LogMudancasTest {
+
+    @TempDir
+    Path diretorio;
+
+    private static List<MudancaCatalogo> mudancas(int quantidade) {
+        List<MudancaCatalogo> lista = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            lista.add(new MudancaCatalogo("Livro", Operacao.ALTERACAO, "livro-" + i));
+        }
+        return lista;
+    }
+
+    private static List<RegistroMudanca> lerTudo(ConsumidorMudancas consumidor) {
+        List<RegistroMudanca> lidos = new ArrayList<>();
+        while (consumidor.ler(7, lidos::add) > 0) {
+            // Lotes pequenos de propósito: a leitura atravessa os segmentos em várias chamadas
+        }
+        return lidos;
+    }
+
+    /**
+     * Registros gravados são lidos em ordem, com o conteúdo "entidade;operacao;chave".
+     */
+    @Test
+    void acrescentarELerTest() {
+        LogMudancas log = new LogMudancas(diretorio, 4096, false);
+        log.abrir();
+        log.acrescentar(List.of(new MudancaCatalogo("Autor", Operacao.INSERCAO, "a1")));
+        assertEquals(3, log.acrescentar(List.of(
+                new MudancaCatalogo("Livro", Operacao.INSERCAO, "l1"),
+                new MudancaCatalogo("Livro", Operacao.REMOCAO_EM_MASSA, "genero=FICCAO"))));
+
+        List<RegistroMudanca> lidos = lerTudo(log.consumidor("busca"));
+
+        assertEquals(3, lidos.size());
+        assertEquals(1, lidos.get(0).sequencia());
+        assertEquals("Autor;INSERCAO;a1", lidos.get(0).texto());
+        assertEquals(new MudancaCatalogo("Livro", Operacao.REMOCAO_EM_MASSA, "genero=FICCAO"), lidos.get(2).mudanca());
+        assertTrue(lidos.get(1).conteudo().isReadOnly()); // Fatia do segmento, não uma cópia
+    }
+
+    /**
+     * A origem (id no outbox) é gravada no cabeçalho de cada registro e sobrevive à reabertura; sem origem, fica 0.
+     */
+    @Test
+    void origemTest() {
+        LogMudancas log = new LogMudancas(diretorio, 4096, false);
+        log.abrir();
+        log.acrescentar(mudancas(2), new long[]{9, 7}); // Ids do outbox não são crescentes no log
+        log.acrescentar(mudancas(1));
+        log.fechar();
+
+        LogMudancas reaberto = new LogMudancas(diretorio, 4096, false);
+        reaberto.abrir();
+        List<RegistroMudanca> lidos = lerTudo(reaberto.consumidor("busca"));
+
+        assertEquals(List.of(9L, 7L, 0L), lidos.stream().map(RegistroMudanca::origem).toList());
+        assertEquals("Livro;ALTERACAO;livro-1", lidos.get(1).texto());
+    }
+
+    /**
+     * Com segmentos pequenos a gravação passa por vários arquivos; a leitura continua em ordem e sem lacunas,
+     * e um log reaberto continua a numeração de onde parou.
+     */
+    @Test
+    void segmentosEReaberturaTest() throws Exception {
+        LogMudancas log = new LogMudancas(diretorio, 256, false); // ~5 registros por segmento
+        log.abrir();
+        for (int i = 0; i < 10; i++) {
+            log.acrescentar(mudancas(5));
+        }
+        log.fechar();
+        assertTrue(log.inicioDosSegmentos().size() > 5);
+
+        LogMudancas reaberto = new LogMudancas(diretorio, 256, false);
+        reaberto.abrir();
+        assertEquals(50, reaberto.ultimaSequencia());
+        assertEquals(51, reaberto.acrescentar(mudancas(1)));
+
+        List<RegistroMudanca> lidos = lerTudo(reaberto.consumidor("precos"));
+        assertEquals(51, lidos.size());
+        for (int i = 0; i < lidos.size(); i++) {
+            assertEquals(i + 1, lidos.get(i).sequencia());
+        }
+    }
+
+    /**
+     * Um consumidor reaberto com o mesmo nome retoma após o último offset confirmado (o que não foi confirmado é
+     * entregue de novo), e o atraso reflete os registros ainda não lidos.
+     */
+    @Test
+    void offsetRetomadoTest() {
+        LogMudancas log = new LogMudancas(diretorio, 512, false);
+        log.abrir();
+        log.acrescentar(mudancas(30));
+
+        ConsumidorMudancas consumidor = log.consumidor("busca");
+        assertEquals(30, consumidor.atraso());
+        consumidor.ler(10, r -> { });
+        consumidor.confirmar();
+        consumidor.ler(5, r -> { }); // Lidos, mas não confirmados
+        assertEquals(15, consumidor.atraso());
+
+        ConsumidorMudancas retomado = log.consumidor("busca");
+        List<RegistroMudanca> lidos = lerTudo(retomado);
+        assertEquals(11, lidos.get(0).sequencia());
+        assertEquals(20, lidos.size());
+        assertEquals(0, retomado.atraso());
+
+        assertEquals(30, lerTudo(log.consumidor("outro")).size()); // Outro nome: offset próprio, começa do início
+    }
+
+    /**
+     * Segmentos já confirmados podem ser apagados; a leitura continua a partir do que restou.
+     */
+    @Test
+    void descartarAteTest() throws Exception {
+        LogMudancas log = new LogMudancas(diretorio, 256, false);
+        log.abrir();
+        log.acrescentar(mudancas(40));
+        ConsumidorMudancas consumidor = log.consumidor("busca");
+        consumidor.ler(25, r -> { });
+        consumidor.confirmar();
+
+        int antes = log.inicioDosSegmentos().size();
+        log.descartarAte(consumidor.confirmada());
+        assertTrue(log.inicioDosSegmentos().size() < antes);
+        assertTrue(log.inicioDosSegmentos().get(0) <= 26); // O segmento com a sequência 26 foi mantido
+
+        List<RegistroMudanca> lidos = lerTudo(log.consumidor("busca"));
+        assertEquals(26, lidos.get(0).sequencia());
+        assertEquals(15, lidos.size());
+    }
+
+    /**
+     * A retenção considera os offsets gravados em disco, inclusive de consumidores que não estão abertos:
+     * o consumidor lento, ao reconectar, continua de onde parou.
+     */
+    @Test
+    void retencaoConsideraOffsetsEmDiscoTest() {
+        LogMudancas log = new LogMudancas(diretorio, 256, false);
+        log.abrir();
+        log.acrescentar(mudancas(40));
+        ConsumidorMudancas lento = log.consumidor("lento");
+        lento.ler(5, r -> { });
+        lento.confirmar(); // E depois "desconecta": só o arquivo lento.offset fica
+        ConsumidorMudancas rapido = log.consumidor("rapido");
+        lerTudo(rapido);
+        rapido.confirmar();
+
+        FeedMudancas feed = new FeedMudancas(log, null, null, 1000, false); // Só o log: descartarConsumidos não usa o outbox
+        feed.consumidor("rapido"); // Só o rápido está aberto pelo feed
+        feed.descartarConsumidos();
+
+        List<RegistroMudanca> lidos = lerTudo(log.consumidor("lento"));
+        assertEquals(6, lidos.get(0).sequencia());
+        assertEquals(35, lidos.size());
+    }
+
+    /**
+     * Offset anterior ao segmento mais antigo (segmentos descartados à força): a abertura falha em vez de pular
+     * registros. Um consumidor novo começa pelo que restou.
+     */
+    @Test
+    void offsetDescartadoFalhaTest() throws Exception {
+        LogMudancas log = new LogMudancas(diretorio, 256, false);
+        log.abrir();
+        log.acrescentar(mudancas(40));
+        ConsumidorMudancas lento = log.consumidor("lento");
+        lento.ler(5, r -> { });
+        lento.confirmar();
+
+        log.descartarAte(30);
+
+        assertThrows(IllegalStateException.class, () -> log.consumidor("lento"));
+        List<RegistroMudanca> lidos = lerTudo(log.consumidor("novo"));
+        assertEquals(log.inicioDosSegmentos().get(0), lidos.get(0).sequencia());
+        assertEquals(40, lidos.get(lidos.size() - 1).sequencia());
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.cursoudemy.libraryapi.logging;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testes do pipeline de log assíncrono de SQL (sem banco de dados).
+ * Validam que nenhum evento é perdido com vários produtores, buffer pequeno e encerramento, e a agregação por formato.
+ */
+class SqlLogPipelineTest {
+
+    private static SqlEvento evento(String sql) {
+        return new SqlEvento(sql, List.<Object[]>of(new Object[]{"978-85"}), 1_000, 1, "teste", System.currentTimeMillis());
+    }
+
+    /**
+     * O buffer recusa novos eventos quando está cheio e volta a aceitar depois do consumo.
+     */
+    @Test
+    void ringBufferCheioTest() {
+        SqlRingBuffer buffer = new SqlRingBuffer(4);
+        for (int i = 0; i < buffer.capacidade(); i++) {
+            assertTrue(buffer.offer(evento("select " + i)));
+        }
+        assertFalse(buffer.offer(evento("select cheio"))); // Cheio: não bloqueia, apenas recusa
+
+        assertEquals("select 0", buffer.poll().sql()); // Ordem de chegada preservada
+        assertTrue(buffer.offer(evento("select de novo")));
+    }
+
+    /**
+     * Vários produtores publicando ao mesmo tempo em um buffer pequeno: tudo deve entrar nas estatísticas
+     * (pela thread de log ou pelo transbordo na thread do produtor) até o fim do encerramento.
+     */
+    @Test
+    void nadaPerdidoNoEncerramentoTest() throws InterruptedException {
+        SqlLogPipeline pipeline = new SqlLogPipeline(16, 0.0, false); // Amostragem 0: só agrega, não escreve
+        pipeline.iniciar();
+
+        int produtores = 8;
+        int eventosPorProdutor = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(produtores);
+        for (int p = 0; p < produtores; p++) {
+            executor.submit(() -> {
+                for (int i = 0; i < eventosPorProdutor; i++) {
+                    pipeline.publicar(evento("select * from livro where isbn = ?"));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        pipeline.fechar();
+
+        var estatistica = pipeline.estatisticas().get("select * from livro where isbn = ?");
+        assertEquals(produtores * eventosPorProdutor, estatistica.execucoes());
+    }
+
+    /**
+     * Com buffer cheio o produtor só agrega: a execução entra nas estatísticas, mas a linha de log é descartada e contada.
+     */
+    @Test
+    void bufferCheioSoAgregaTest() {
+        SqlLogPipeline pipeline = new SqlLogPipeline(4, 1.0, true); // Thread de log não iniciada: o buffer enche
+        for (int i = 0; i < 10; i++) {
+            pipeline.publicar(evento("select * from livro where genero = ?"));
+        }
+
+        assertEquals(6, pipeline.linhasDescartadas()); // 10 publicados, 4 couberam no buffer
+        assertEquals(10, pipeline.estatisticas().get("select * from livro where genero = ?").execucoes());
+    }
+
+    /**
+     * Statements com literais diferentes caem no mesmo formato de agregação.
+     */
+    @Test
+    void formatoNormalizaLiteraisTest() {
+        assertEquals(SqlLogPipeline.formato("select * from livro where genero = 'FICCAO' and preco > 10"),
+                SqlLogPipeline.formato("SELECT *  FROM livro\n where genero = 'ROMANCE' and preco > 25.50"));
+        assertNull(new SqlRingBuffer(2).poll());
+    }
+
+    /**
+     * setNull(indice, tipoSql) é registrado como bind nulo (e não com o código de java.sql.Types), inclusive na última posição.
+     */
+    @Test
+    void bindNuloTest() throws Exception {
+        List<SqlEvento> publicados = new ArrayList<>();
+        SqlLogPipeline pipeline = new SqlLogPipeline(16, 0.0, false) {
+            @Override
+            public void publicar(SqlEvento evento) {
+                publicados.add(evento);
+            }
+        };
+        // Driver falso: só o necessário para um executeUpdate
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (p, metodo, args) -> metodo.getName().equals("executeUpdate") ? 1 : null);
+        Connection conexao = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (p, metodo, args) -> metodo.getName().equals("prepareStatement") ? statement : null);
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (p, metodo, args) -> conexao);
+
+        PreparedStatement capturado = SqlCapturaProxy.envolver(dataSource, pipeline).getConnection()
+                .prepareStatement("update livro set titulo = ?, preco = ? where id = ?");
+        capturado.setNull(1, Types.VARCHAR);
+        capturado.setString(2, "10.00");
+        capturado.setNull(3, Types.OTHER);
+        capturado.executeUpdate();
+
+        assertArrayEquals(new Object[]{null, "10.00", null}, publicados.get(0).parametros().get(0));
+    }
+
+    /**
+     * Statement reaproveitado com addBatch(sql): cada executeBatch registra só os comandos do seu lote, e um lote
+     * descartado com clearBatch não aparece no seguinte.
+     */
+    @Test
+    void loteDeStatementReaproveitadoTest() throws Exception {
+        List<SqlEvento> publicados = new ArrayList<>();
+        SqlLogPipeline pipeline = new SqlLogPipeline(16, 0.0, false) {
+            @Override
+            public void publicar(SqlEvento evento) {
+                publicados.add(evento);
+            }
+        };
+        Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Statement.class}, (p, metodo, args) -> metodo.getName().equals("executeBatch") ? new int[]{1} : null);
+        Connection conexao = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (p, metodo, args) -> metodo.getName().equals("createStatement") ? statement : null);
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class}, (p, metodo, args) -> conexao);
+
+        Statement capturado = SqlCapturaProxy.envolver(dataSource, pipeline).getConnection().createStatement();
+        capturado.addBatch("delete from livro where genero = 'FICCAO'");
+        capturado.executeBatch();
+        capturado.addBatch("delete from autor where nacionalidade = 'X'");
+        capturado.clearBatch();
+        capturado.addBatch("delete from livro where genero = 'ROMANCE'");
+        capturado.executeBatch();
+
+        assertEquals("delete from livro where genero = 'FICCAO'", publicados.get(0).sql());
+        assertEquals("delete from livro where genero = 'ROMANCE'", publicados.get(1).sql());
+    }
+}
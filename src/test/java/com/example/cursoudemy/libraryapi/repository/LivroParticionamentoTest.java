@@ -0,0 +1,178 @@
+package com.example.cursoudemy.libraryapi.repository;
+
+import com.example.cursoudemy.libraryapi.models.GeneroLivro;
+import com.example.cursoudemy.libraryapi.models.Livro;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Testes do particionamento da tabela livro (scripts em src/main/resources/db).
+ * Verificam pelo EXPLAIN que o PostgreSQL lê apenas as partições necessárias (partition pruning) e que o
+ * deleteByGenero esvazia a partição inteira.
+ * O EXPLAIN usa prepare/execute com plano genérico: o repositório envia parâmetros (não literais) e, depois de
+ * algumas execuções, o PostgreSQL pode passar a usar o plano genérico, em que a poda acontece no início da execução. São ignorados se o banco ainda não tiver a tabela particionada.
+ */
+@SpringBootTest
+public class LivroParticionamentoTest {
+
+    @Autowired
+    LivroRepository repository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DataSource dataSource;
+
+    private String estrategia; // 'l' = LIST (genero), 'r' = RANGE (data_publicacao)
+
+    @BeforeEach
+    void verificarParticionamento() {
+        List<String> estrategias = jdbcTemplate.queryForList(
+                "select partstrat::text from pg_partitioned_table where partrelid = to_regclass('livro')", String.class);
+        assumeTrue(!estrategias.isEmpty(), "Tabela livro não está particionada");
+        estrategia = estrategias.get(0);
+    }
+
+    /**
+     * Consulta por gênero (findByGenero) deve ler somente a partição do gênero.
+     */
+    @Test
+    void podaPorGeneroTest() {
+        assumeTrue(estrategia.equals("l"));
+        String plano = planoGenerico("varchar", "select * from livro where genero = $1 order by preco", "'FICCAO'");
+        assertTrue(plano.contains("Subplans Removed"), plano); // Poda com o valor do parâmetro, no início da execução
+        assertEquals(List.of("livro_ficcao"), particoesLidas(plano));
+    }
+
+    /**
+     * Consulta por período dentro de uma década (findByDataPublicacaoBetween) deve ler somente a partição da década.
+     */
+    @Test
+    void podaPorDataPublicacaoTest() {
+        assumeTrue(estrategia.equals("r"));
+        String plano = planoGenerico("date, date", "select * from livro where data_publicacao between $1 and $2",
+                "'2001-01-01', '2001-12-31'");
+        assertTrue(plano.contains("Subplans Removed"), plano);
+        assertEquals(List.of("livro_2000"), particoesLidas(plano));
+    }
+
+    /**
+     * Com particionamento por gênero, deleteByGenero esvazia a partição com truncate: a mesma partição (mesmo oid)
+     * passa a usar um arquivo novo e vazio, e as demais partições não são tocadas.
+     */
+    @Test
+    void deletePorGeneroDescartaParticaoTest() {
+        assumeTrue(estrategia.equals("l"));
+        Livro livro = new Livro();
+        livro.setIsbn("978-00-00000-00-0");
+        livro.setTitulo("Livro para descarte");
+        livro.setPreco(BigDecimal.valueOf(10));
+        livro.setGenero(GeneroLivro.MISTERIO);
+        livro.setDataPublicacao(LocalDate.of(2000, 1, 1));
+        repository.save(livro);
+
+        Long oidAntes = jdbcTemplate.queryForObject("select to_regclass('livro_misterio')::oid::bigint", Long.class);
+        Long arquivoAntes = jdbcTemplate.queryForObject("select pg_relation_filenode('livro_misterio')::bigint", Long.class);
+        long outrosAntes = contarForaDoGenero("MISTERIO");
+
+        repository.deleteByGenero(GeneroLivro.MISTERIO);
+
+        assertEquals(oidAntes, jdbcTemplate.queryForObject("select to_regclass('livro_misterio')::oid::bigint", Long.class)); // Mesma partição
+        assertNotEquals(arquivoAntes, jdbcTemplate.queryForObject("select pg_relation_filenode('livro_misterio')::bigint", Long.class)); // Truncate: arquivo novo
+        assertEquals(0L, jdbcTemplate.queryForObject("select count(*) from livro where genero = 'MISTERIO'", Long.class));
+        assertEquals(outrosAntes, contarForaDoGenero("MISTERIO"));
+    }
+
+    /**
+     * deleteByGenero esperando uma escrita em andamento na partição não pode travar as leituras: uma consulta sem
+     * poda no planejamento (por isbn) trava todas as partições e ficaria na fila atrás de um ACCESS EXCLUSIVE.
+     */
+    @Test
+    void deletePorGeneroNaoBloqueiaLeiturasTest() throws Exception {
+        assumeTrue(estrategia.equals("l"));
+        CompletableFuture<Void> remocao;
+        try (Connection escrita = dataSource.getConnection(); Statement comando = escrita.createStatement()) {
+            escrita.setAutoCommit(false);
+            comando.execute("lock table livro_misterio in row exclusive mode"); // Como um insert ainda sem commit
+            remocao = CompletableFuture.runAsync(() -> repository.deleteByGenero(GeneroLivro.MISTERIO));
+            while (jdbcTemplate.queryForObject(
+                    "select count(*) from pg_locks where relation = to_regclass('livro_misterio') and not granted", Long.class) == 0) {
+                Thread.sleep(20); // Até a remoção entrar na fila do lock
+            }
+
+            Long encontrados = jdbcTemplate.execute((ConnectionCallback<Long>) conexao -> {
+                try (Statement leitura = conexao.createStatement()) {
+                    leitura.execute("set lock_timeout = '2s'"); // Falha em vez de esperar se a leitura entrar na fila
+                    try (ResultSet resultado = leitura.executeQuery("select count(*) from livro where isbn = '978-00-00000-00-9'")) {
+                        resultado.next();
+                        return resultado.getLong(1);
+                    } finally {
+                        leitura.execute("reset lock_timeout");
+                    }
+                }
+            });
+            assertEquals(0L, encontrados);
+            escrita.rollback();
+        }
+        remocao.get();
+    }
+
+    private long contarForaDoGenero(String genero) {
+        return jdbcTemplate.queryForObject("select count(*) from livro where genero <> ?", Long.class, genero);
+    }
+
+    /**
+     * EXPLAIN do plano genérico (o mesmo para qualquer valor dos parâmetros) de uma consulta parametrizada.
+     * prepare e plan_cache_mode valem para a sessão: tudo roda na mesma conexão, que é devolvida ao pool limpa.
+     */
+    private String planoGenerico(String tipos, String sql, String argumentos) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) conexao -> {
+            try (Statement statement = conexao.createStatement()) {
+                statement.execute("set plan_cache_mode = force_generic_plan");
+                statement.execute("prepare consulta(" + tipos + ") as " + sql);
+                try (ResultSet resultado = statement.executeQuery("explain (costs off) execute consulta(" + argumentos + ")")) {
+                    StringBuilder plano = new StringBuilder();
+                    while (resultado.next()) {
+                        plano.append(resultado.getString(1)).append('\n');
+                    }
+                    return plano.toString();
+                } finally {
+                    statement.execute("deallocate consulta");
+                    statement.execute("reset plan_cache_mode");
+                }
+            }
+        });
+    }
+
+    /**
+     * Nomes das partições que aparecem no plano (nós de leitura de tabela).
+     */
+    private List<String> particoesLidas(String plano) {
+        List<String> particoes = jdbcTemplate.queryForList(
+                "select c.relname::text from pg_inherits i join pg_class c on c.oid = i.inhrelid where i.inhparent = to_regclass('livro')",
+                String.class);
+        return particoes.stream()
+                .filter(p -> plano.matches("(?s).* on " + p + "(\\s.*)?"))
+                .sorted()
+                .toList();
+    }
+}
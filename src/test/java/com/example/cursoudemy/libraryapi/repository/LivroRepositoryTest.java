@@ -189,8 +189,37 @@ public class LivroRepositoryTest {
     }
 
     /**
-     * Teste para demonstrar operações de modificação (delete) com @Modifying e @Transactional (deleteByGenero).
-     * Deleta livros de um gênero específico, ilustrando updates em lote e necessidade de transação.
+     * Teste para demonstrar consultas com vários gêneros em um único parâmetro array (findByGeneros).
+     * Substitui um findByGenero por gênero; o SQL é o mesmo para qualquer quantidade de gêneros.
+     */
+    @Test
+    void listarPorVariosGenerosTest() {
+        List<Livro> lista = repository.findByGeneros(List.of(GeneroLivro.FICCAO, GeneroLivro.ROMANCE, GeneroLivro.CIÊNCIA));
+        lista.forEach(System.out::println); // Exibe cada livro encontrado
+    }
+
+    /**
+     * Teste para demonstrar consultas com vários ISBNs em um único parâmetro array (findByIsbnAny).
+     */
+    @Test
+    void pesquisaPorVariosISBNsTest() {
+        List<Livro> lista = repository.findByIsbnAny(new String[]{"285-81-94830-00-1", "578-81-68090-00-1"});
+        lista.forEach(System.out::println); // Exibe cada livro encontrado
+    }
+
+    /**
+     * Teste para demonstrar consultas com IN e listas completadas (findByGeneroIn com in_clause_parameter_padding).
+     */
+    @Test
+    void listarPorGeneroInTest() {
+        List<Livro> lista = repository.findByGeneroIn(List.of(GeneroLivro.FICCAO, GeneroLivro.ROMANCE, GeneroLivro.CIÊNCIA)); // 3 valores -> in (?, ?, ?, ?)
+        lista.forEach(System.out::println); // Exibe cada livro encontrado
+    }
+
+    /**
+     * Teste da remoção em massa (deleteByGenero, em LivroOperacoesEmLoteRepositoryImpl).
+     * Com livro particionado por gênero a partição é esvaziada com truncate; sem partição, um único
+     * delete ... returning apaga os livros e registra os deltas do resumo por autor.
      */
     @Test
     void deletePorGeneroTest() {
@@ -198,8 +227,9 @@ public class LivroRepositoryTest {
     }
 
     /**
-     * Teste para demonstrar operações de modificação (update) com @Modifying e @Transactional (atualizarDataDePublicacaoDeLivros).
-     * Atualiza a data de publicação de todos os livros, mostrando updates em massa.
+     * Teste do update em massa (atualizarDataDePublicacaoDeLivros, em LivroOperacoesEmLoteRepositoryImpl).
+     * Atualiza a data de publicação de todos os livros com um update ... returning id pelo JDBC, que devolve os
+     * livros alterados para o feed de alterações.
      */
     @Test
     void updateDataPublicacaoTest() {
@@ -0,0 +1,163 @@
+package com.example.cursoudemy.libraryapi.service;
+
+import com.example.cursoudemy.libraryapi.models.Autor;
+import com.example.cursoudemy.libraryapi.models.GeneroLivro;
+import com.example.cursoudemy.libraryapi.models.Livro;
+import com.example.cursoudemy.libraryapi.repository.AutorRepository;
+import com.example.cursoudemy.libraryapi.repository.LivroRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Testes do resumo por autor: inserção, troca de autor (setAutor), consolidação dos deltas e carga inicial
+ * de autores que já tinham livros antes do resumo existir.
+ */
+@SpringBootTest(properties = "libraryapi.autor-resumo.intervalo-ms=3600000") // Consolidação só quando o teste chamar
+public class AutorResumoServiceTest {
+
+    @Autowired
+    AutorResumoService service;
+
+    @Autowired
+    AutorRepository autorRepository;
+
+    @Autowired
+    LivroRepository livroRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DataSource dataSource;
+
+    /**
+     * A quantidade de livros é exata antes da consolidação; datas e preços aparecem depois dela.
+     */
+    @Test
+    void resumoAcompanhaInsercaoETrocaDeAutorTest() {
+        Autor machado = novoAutor("Machado de Assis");
+        Autor clarice = novoAutor("Clarice Lispector");
+
+        novoLivro(machado, "978-22-22222-22-1", BigDecimal.valueOf(30), LocalDate.of(1881, 1, 1));
+        Livro livro = novoLivro(machado, "978-22-22222-22-2", BigDecimal.valueOf(50), LocalDate.of(1899, 1, 1));
+
+        assertEquals(2, service.buscarResumo(machado.getId()).orElseThrow().qtdLivros()); // Soma dos deltas pendentes
+
+        livro.setAutor(clarice); // Troca de autor: -1 para um, +1 para o outro
+        livroRepository.save(livro);
+        service.consolidar();
+
+        var resumoMachado = service.buscarResumo(machado.getId()).orElseThrow();
+        var resumoClarice = service.buscarResumo(clarice.getId()).orElseThrow();
+        assertEquals(1, resumoMachado.qtdLivros());
+        assertEquals(LocalDate.of(1881, 1, 1), resumoMachado.dataUltimaPublicacao());
+        assertEquals(1, resumoClarice.qtdLivros());
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(resumoClarice.maiorPreco()));
+    }
+
+    /**
+     * Autor com livros gravados antes do resumo (sem deltas): a carga inicial do autor_resumo.sql conta os livros
+     * existentes, sem contar duas vezes os deltas pendentes, e só acontece uma vez: nas inicializações seguintes
+     * o script não recalcula nada.
+     */
+    @Test
+    void cargaInicialDeAutorExistenteTest() {
+        Autor autor = novoAutor("Jorge Amado");
+        for (int i = 0; i < 100; i++) { // Livros "antigos": gravados direto no banco, sem passar pelo listener
+            jdbcTemplate.update("insert into livro (id, isbn, titulo, data_publicacao, genero, preco, id_autor) values (?, ?, ?, ?, ?, ?, ?)",
+                    UUID.randomUUID(), "978-33-" + i, "Livro antigo " + i, LocalDate.of(1958, 1, 1), "ROMANCE", BigDecimal.TEN, autor.getId());
+        }
+        jdbcTemplate.update("delete from autor_resumo where id_autor = ?", autor.getId()); // Como em um banco anterior ao resumo
+        jdbcTemplate.update("delete from autor_resumo_carga_inicial");
+        novoLivro(autor, "978-33-novo", BigDecimal.valueOf(40), LocalDate.of(1966, 1, 1)); // Delta +1 pendente
+
+        executarScriptDoResumo(); // Inicialização da aplicação
+        assertEquals(101, service.buscarResumo(autor.getId()).orElseThrow().qtdLivros());
+
+        service.consolidar();
+        executarScriptDoResumo(); // Reinicialização: não altera nada
+        var resumo = service.buscarResumo(autor.getId()).orElseThrow();
+        assertEquals(101, resumo.qtdLivros());
+        assertEquals(LocalDate.of(1966, 1, 1), resumo.dataUltimaPublicacao());
+
+        jdbcTemplate.update("delete from autor_resumo where id_autor = ?", autor.getId());
+        executarScriptDoResumo(); // Carga inicial já marcada: não é executada de novo
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from autor_resumo where id_autor = ?", Long.class, autor.getId()));
+    }
+
+    /**
+     * deleteByGenero enquanto outras threads inserem livros do mesmo gênero para o autor: ao final, a quantidade
+     * do resumo bate com os livros que realmente ficaram no banco (nenhum livro apagado sem delta).
+     */
+    @Test
+    void deletePorGeneroComEscritasConcorrentesTest() throws Exception {
+        Autor autor = novoAutor("Cecília Meireles");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> escritas = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int escritor = t;
+            escritas.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    novoLivro(autor, "978-44-" + escritor + "-" + i, BigDecimal.ONE, LocalDate.of(1939, 1, 1), GeneroLivro.BIOGRAFIA);
+                }
+            }));
+        }
+        for (int i = 0; i < 10; i++) {
+            livroRepository.deleteByGenero(GeneroLivro.BIOGRAFIA);
+            Thread.sleep(10);
+        }
+        for (Future<?> escrita : escritas) {
+            escrita.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        service.consolidar();
+        long noBanco = jdbcTemplate.queryForObject("select count(*) from livro where id_autor = ?", Long.class, autor.getId());
+        assertEquals(noBanco, service.buscarResumo(autor.getId()).orElseThrow().qtdLivros());
+    }
+
+    private void executarScriptDoResumo() {
+        new ResourceDatabasePopulator(new ClassPathResource("db/autor_resumo.sql")).execute(dataSource);
+    }
+
+    private Autor novoAutor(String nome) {
+        Autor autor = new Autor();
+        autor.setNome(nome);
+        autor.setNacionalidade("Brasileiro");
+        autor.setDataNascimento(LocalDate.of(1839, 6, 21));
+        return autorRepository.save(autor);
+    }
+
+    private Livro novoLivro(Autor autor, String isbn, BigDecimal preco, LocalDate dataPublicacao) {
+        return novoLivro(autor, isbn, preco, dataPublicacao, GeneroLivro.ROMANCE);
+    }
+
+    private Livro novoLivro(Autor autor, String isbn, BigDecimal preco, LocalDate dataPublicacao, GeneroLivro genero) {
+        Livro livro = new Livro();
+        livro.setIsbn(isbn);
+        livro.setTitulo("Livro de " + autor.getNome());
+        livro.setPreco(preco);
+        livro.setGenero(genero);
+        livro.setDataPublicacao(dataPublicacao);
+        livro.setAutor(autor);
+        return livroRepository.save(livro);
+    }
+}
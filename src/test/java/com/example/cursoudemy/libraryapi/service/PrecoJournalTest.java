@@ -0,0 +1,45 @@
+package com.example.cursoudemy.libraryapi.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Testes do PrecoJournal (sem Spring): recuperação das atualizações gravadas no arquivo.
+ */
+public class PrecoJournalTest {
+
+    @TempDir
+    Path diretorio;
+
+    /**
+     * Linha cortada no meio da escrita (sem "\n" no fim) é descartada: "19.90" cortado em "1" não vira o preço 1.
+     */
+    @Test
+    void linhaIncompletaIgnoradaTest() throws Exception {
+        UUID livro = UUID.randomUUID();
+        PrecoJournal journal = new PrecoJournal(diretorio, false);
+        journal.recuperar(new HashMap<>());
+        journal.registrar(livro, new BigDecimal("15.00"));
+        journal.fechar();
+        Files.writeString(diretorio.resolve("precos-1.journal"), livro + ";1", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND); // Queda durante a escrita de "<id>;19.90\n"
+
+        Map<UUID, BigDecimal> recuperados = new HashMap<>();
+        PrecoJournal reaberto = new PrecoJournal(diretorio, false);
+        reaberto.recuperar(recuperados);
+        reaberto.fechar();
+
+        assertEquals(Map.of(livro, new BigDecimal("15.00")), recuperados);
+    }
+}
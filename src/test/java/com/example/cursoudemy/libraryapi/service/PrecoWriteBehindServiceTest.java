@@ -0,0 +1,106 @@
+package com.example.cursoudemy.libraryapi.service;
+
+import com.example.cursoudemy.libraryapi.logging.SqlLogPipeline;
+import com.example.cursoudemy.libraryapi.models.GeneroLivro;
+import com.example.cursoudemy.libraryapi.models.Livro;
+import com.example.cursoudemy.libraryapi.repository.LivroRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Testes do PrecoWriteBehindService: coalescência das atualizações, leitura das próprias escritas antes da
+ * gravação e gravação em lote no banco.
+ */
+@SpringBootTest(properties = {
+        "libraryapi.preco.intervalo-ms=3600000", // Gravação só quando o teste chamar gravarPendentes()
+        "spring.jmx.enabled=true" // O @SpringBootTest desliga o JMX por padrão
+})
+public class PrecoWriteBehindServiceTest {
+
+    @Autowired
+    PrecoWriteBehindService service;
+
+    @Autowired
+    LivroRepository livroRepository;
+
+    @Autowired
+    SqlLogPipeline sqlLogPipeline;
+
+    private Livro novoLivro(String isbn) {
+        Livro livro = new Livro();
+        livro.setIsbn(isbn);
+        livro.setTitulo("Livro reprecificado");
+        livro.setPreco(BigDecimal.valueOf(10));
+        livro.setGenero(GeneroLivro.ROMANCE);
+        livro.setDataPublicacao(LocalDate.of(2010, 5, 1));
+        return livroRepository.save(livro);
+    }
+
+    /**
+     * Várias atualizações do mesmo livro viram uma única linha gravada, e o último preço é visível antes e depois da gravação.
+     */
+    @Test
+    void coalescenciaELeituraDasPropriasEscritasTest() throws Exception {
+        Livro livro = novoLivro("978-11-11111-11-1");
+
+        var antes = service.metricas();
+        for (int i = 1; i <= 100; i++) {
+            service.atualizarPreco(livro.getId(), BigDecimal.valueOf(i)); // Rajada de reprecificação do mesmo ISBN
+        }
+
+        assertEquals(0, BigDecimal.valueOf(100).compareTo(service.buscarPreco(livro.getId()).orElseThrow())); // Ainda no buffer
+        assertEquals(0, BigDecimal.TEN.compareTo(livroRepository.findById(livro.getId()).orElseThrow().getPreco())); // Banco ainda com o antigo
+
+        service.gravarPendentes();
+
+        assertEquals(0, BigDecimal.valueOf(100).compareTo(livroRepository.findById(livro.getId()).orElseThrow().getPreco()));
+        var depois = service.metricas();
+        assertEquals(100, depois.recebidas() - antes.recebidas());
+        assertEquals(1, depois.gravadas() - antes.gravadas()); // 100 atualizações, 1 linha gravada
+        assertTrue(depois.taxaCoalescencia() > 1);
+
+        // As mesmas métricas expostas por JMX
+        Object taxaJmx = ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName("libraryapi:name=precoWriteBehind"), "TaxaCoalescencia");
+        assertEquals(depois.taxaCoalescencia(), (Double) taxaJmx, 0.0001);
+    }
+
+    /**
+     * Lotes de tamanhos diferentes usam o mesmo texto de SQL (um único statement preparado e plano em cache).
+     */
+    @Test
+    void mesmoSqlParaQualquerTamanhoDeLoteTest() throws Exception {
+        List<UUID> ids = List.of(novoLivro("978-11-11111-11-2").getId(), novoLivro("978-11-11111-11-3").getId(),
+                novoLivro("978-11-11111-11-4").getId());
+        sqlLogPipeline.limparEstatisticas();
+
+        service.atualizarPreco(ids.get(0), BigDecimal.valueOf(20));
+        service.gravarPendentes(); // Lote de 1
+        ids.forEach(id -> service.atualizarPreco(id, BigDecimal.valueOf(30)));
+        service.gravarPendentes(); // Lote de 3
+
+        List<SqlLogPipeline.EstatisticaStatement> gravacoes = List.of();
+        for (int tentativa = 0; tentativa < 100; tentativa++) { // O pipeline agrega em background
+            gravacoes = sqlLogPipeline.estatisticas().values().stream()
+                    .filter(e -> e.formato().contains("update livro as l set preco")).toList();
+            if (gravacoes.stream().mapToLong(SqlLogPipeline.EstatisticaStatement::execucoes).sum() >= 2) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+        assertEquals(1, gravacoes.size(), gravacoes.stream().map(SqlLogPipeline.EstatisticaStatement::formato).toList().toString());
+        assertEquals(2, gravacoes.get(0).execucoes());
+        ids.forEach(id -> assertEquals(0, BigDecimal.valueOf(30).compareTo(livroRepository.findById(id).orElseThrow().getPreco())));
+    }
+}